@@ -0,0 +1,350 @@
+package server;
+
+import common.Logs;
+import common.Message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class to manage Server with a single selector thread
+ * The selector thread accepts, reads and writes without blocking, so an idle
+ * client costs a socket and a few objects instead of a thread. Each complete
+ * message is run by a small pool of workers, one message at a time per client,
+ * with the same operations as Handler (Session)
+ *
+ * @author Marais-Viau
+ */
+public class SelectorServer {
+	private final static long TIMEOUT = 43_200_000; // 12h without a message, as Handler
+	private final static long SWEEP = 60_000; // Delay between two checks of idle clients
+	private final static int BUFFER = 8192; // Size of the read buffer shared by all clients
+	private final static int MAX_MESSAGE = 1 << 16; // Longest message accepted, in bytes
+	private final static int MAX_QUEUED = 64; // Messages waiting for a worker before the client stops being read
+	private final static int MAX_PENDING = 1 << 20; // Bytes of responses waiting before the client stops being read
+	private final static Charset CHARSET = Charset.defaultCharset(); // Same encoding as Handler
+
+	private Selector selector = null;
+	private ServerSocketChannel server = null;
+	private final ExecutorService workers;
+	private final ByteBuffer input = ByteBuffer.allocate(BUFFER);
+	private final Queue<Connection> writable = new ConcurrentLinkedQueue<>(); // Clients with new responses
+
+	/**
+	 * Constructor
+	 *
+	 * @param port    the port on which the server listens
+	 * @param workers the number of threads running the requests
+	 */
+	public SelectorServer(int port, int workers) {
+		this.workers = Executors.newFixedThreadPool(workers);
+		try {
+			selector = Selector.open();
+			server = ServerSocketChannel.open();
+			server.bind(new InetSocketAddress(port));
+			server.configureBlocking(false);
+			server.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			Logs.error("Can't bind socket on port: " + port);
+			server = null;
+			return;
+		}
+		Logs.log("Selector server created on port: " + port + " with " + workers + " workers");
+	}
+
+	/**
+	 * Constructor with one worker per processor, at least two
+	 *
+	 * @param port the port on which the server listens
+	 */
+	public SelectorServer(int port) {
+		this(port, Math.max(2, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Runs the server service
+	 */
+	public void serve() {
+		if (server == null) {
+			Logs.error("Server not bound -> exit");
+			workers.shutdown();
+			return;
+		}
+		Logs.log("Server started");
+		long lastSweep = System.currentTimeMillis();
+		while (true) {
+			try {
+				selector.select(SWEEP);
+			} catch (IOException e) {
+				Logs.error("Selector failed -> exit");
+				workers.shutdown();
+				return;
+			}
+			Connection c;
+			while ((c = writable.poll()) != null) {
+				c.flush();
+			}
+			Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+			while (it.hasNext()) {
+				SelectionKey key = it.next();
+				it.remove();
+				try {
+					if (key.isAcceptable()) {
+						accept();
+					} else {
+						c = (Connection) key.attachment();
+						if (key.isReadable()) {
+							c.read();
+						}
+						if (key.isValid() && key.isWritable()) {
+							c.flush();
+						}
+					}
+				} catch (CancelledKeyException e) {
+					continue;
+				}
+			}
+			if (System.currentTimeMillis() - lastSweep >= SWEEP) {
+				sweep();
+				lastSweep = System.currentTimeMillis();
+			}
+		}
+	}
+
+	private void accept() {
+		try {
+			SocketChannel channel = server.accept();
+			if (channel == null) {
+				return;
+			}
+			channel.configureBlocking(false);
+			Connection c = new Connection(channel);
+			c.key = channel.register(selector, SelectionKey.OP_READ, c);
+			Logs.log("New connection with the server for " + c.addr);
+		} catch (IOException e) {
+			Logs.warning("Try to handle new connection but failed -> continue");
+		}
+	}
+
+	/**
+	 * Closes the connections without any message since TIMEOUT
+	 */
+	private void sweep() {
+		long now = System.currentTimeMillis();
+		for (SelectionKey key : new ArrayList<>(selector.keys())) {
+			Object c = key.attachment();
+			if (c instanceof Connection && now - ((Connection) c).lastActivity > TIMEOUT) {
+				Logs.warning("Socket timeout for " + ((Connection) c).addr + " -> closing connection");
+				((Connection) c).close();
+			}
+		}
+	}
+
+	/**
+	 * Class for the state of one client
+	 * Only the selector thread reads, writes and closes the channel;
+	 * the workers run the messages of the inbox and fill the outbox.
+	 * The session is only used by the thread holding running, so the logout
+	 * never runs while a worker is still handling a message of the client
+	 */
+	private class Connection {
+		private final SocketChannel channel;
+		private SelectionKey key;
+		private final String addr;
+		private final Session session;
+		private long lastActivity = System.currentTimeMillis();
+
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream(); // Line being received
+		private final StringBuilder message = new StringBuilder(); // Lines of the message being received
+		private final Queue<Message> inbox = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger queued = new AtomicInteger(0); // Messages in the inbox
+		private volatile boolean paused = false; // The client is not read until the server catches up
+		private final AtomicBoolean running = new AtomicBoolean(false); // A worker runs the inbox or the session is closed
+		private final Queue<ByteBuffer> outbox = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger pending = new AtomicInteger(0); // Bytes in the outbox
+		private volatile boolean closing = false; // Close once the outbox is written
+
+		private Connection(SocketChannel channel) {
+			this.channel = channel;
+			this.addr = channel.socket().getInetAddress().toString();
+			this.session = new Session(addr, this::send);
+		}
+
+		/**
+		 * Reads the available bytes and cuts them into messages ended by a "." line
+		 */
+		private void read() {
+			input.clear();
+			int n;
+			try {
+				n = channel.read(input);
+			} catch (IOException e) {
+				Logs.warning("IOException for " + addr + " -> closing connection");
+				close();
+				return;
+			}
+			if (n < 0) {
+				Logs.error("Client has been disconnected for " + addr + " -> closing connection");
+				close();
+				return;
+			}
+			lastActivity = System.currentTimeMillis();
+			input.flip();
+			while (input.hasRemaining()) {
+				byte b = input.get();
+				if (b != '\n') {
+					if (line.size() + message.length() >= MAX_MESSAGE) {
+						Logs.warning("Message too long for " + addr + " -> closing connection");
+						close();
+						return;
+					}
+					line.write(b);
+					continue;
+				}
+				String data = new String(line.toByteArray(), CHARSET);
+				line.reset();
+				if (data.endsWith("\r")) {
+					data = data.substring(0, data.length() - 1);
+				}
+				if (!data.equals(".")) {
+					message.append(data).append('\n');
+					continue;
+				}
+				String buffer = message.toString().trim();
+				message.setLength(0);
+				try {
+					inbox.add(Message.stringToMessage(buffer));
+					queued.incrementAndGet();
+				} catch (IllegalArgumentException e) {
+					Logs.warning("Can't Handle the format for " + addr + " -> drop message");
+					continue;
+				}
+				if (running.compareAndSet(false, true)) {
+					workers.execute(this::drain);
+				}
+			}
+			// A client that sends faster than it is served or than it reads its responses is not read either
+			if (overloaded() && key.isValid()) {
+				paused = true;
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+			}
+		}
+
+		private boolean overloaded() {
+			return queued.get() > MAX_QUEUED || pending.get() > MAX_PENDING;
+		}
+
+		/**
+		 * Runs the messages of the inbox in order, on a worker
+		 */
+		private void drain() {
+			do {
+				Message m;
+				while (!closing && !session.wantAnExit() && (m = inbox.poll()) != null) {
+					queued.decrementAndGet();
+					session.handle(m);
+				}
+				if (paused) {
+					// The selector thread reads the client again if it has caught up
+					writable.add(this);
+					selector.wakeup();
+				}
+				running.set(false);
+			} while (!closing && !session.wantAnExit() && !inbox.isEmpty() && running.compareAndSet(false, true));
+			if (session.wantAnExit() && !closing) {
+				closing = true;
+				writable.add(this);
+				selector.wakeup();
+			}
+			// Connection closed while the worker ran a message: the worker logs out
+			if (closing && running.compareAndSet(false, true)) {
+				session.logout();
+			}
+		}
+
+		/**
+		 * Queues a response, written by the selector thread
+		 *
+		 * @param m the response
+		 */
+		private void send(Message m) {
+			ByteBuffer packet = CHARSET.encode(m.toNetFormat());
+			pending.addAndGet(packet.limit());
+			outbox.add(packet);
+			writable.add(this);
+			selector.wakeup();
+		}
+
+		/**
+		 * Writes the outbox as far as the socket accepts it, on the selector thread
+		 */
+		private void flush() {
+			if (!channel.isOpen()) {
+				return;
+			}
+			try {
+				ByteBuffer packet;
+				while ((packet = outbox.peek()) != null) {
+					channel.write(packet);
+					if (packet.hasRemaining()) {
+						break;
+					}
+					outbox.poll();
+					pending.addAndGet(-packet.limit());
+				}
+			} catch (IOException e) {
+				Logs.warning("IOException for " + addr + " -> closing connection");
+				close();
+				return;
+			}
+			if (outbox.isEmpty() && closing) {
+				close();
+				return;
+			}
+			paused = overloaded();
+			int ops = paused ? 0 : SelectionKey.OP_READ;
+			if (!outbox.isEmpty()) {
+				ops |= SelectionKey.OP_WRITE;
+			}
+			key.interestOps(ops);
+		}
+
+		/**
+		 * Closes the channel, on the selector thread
+		 * The user is logged out here if no worker runs the inbox, else by the worker
+		 */
+		private void close() {
+			if (!channel.isOpen()) {
+				return;
+			}
+			closing = true;
+			inbox.clear();
+			key.cancel();
+			try {
+				channel.close();
+				Logs.log("Connection closed for " + addr);
+			} catch (IOException e) {
+				Logs.warning("Failed to close the connection for " + addr);
+			}
+			if (running.compareAndSet(false, true)) {
+				session.logout();
+			}
+		}
+	}
+}
@@ -52,11 +52,13 @@ public class Server {
 
 	/**
 	 * Main method that runs the server on a choosen port
+	 * With "nio" after the port, a selector server replaces the thread per connection server
 	 */
 	public static void main(String[] args) {
 		int port = 1027;
-		if (args.length != 1) {
-			Logs.error("One argument requiered: [port]");
+		boolean nio = args.length == 2 && args[1].equals("nio");
+		if (args.length != 1 && !nio) {
+			Logs.error("Arguments requiered: [port] [nio]");
 			System.exit(1);
 		} else {
 			try {
@@ -69,6 +71,10 @@ public class Server {
 			}
 		}
 
-		new Server(port).serve();
+		if (nio) {
+			new SelectorServer(port).serve();
+		} else {
+			new Server(port).serve();
+		}
 	}
 }
@@ -0,0 +1,309 @@
+package server;
+
+import java.util.function.Consumer;
+
+import common.Index;
+import common.Logs;
+import common.Message;
+import common.StorageAnnonce;
+import common.Domaine;
+import common.Annonce;
+
+/**
+ * Class to run the GDTP operations of one client
+ * Shared by the thread per connection server (Handler)
+ * and the selector server (SelectorServer)
+ *
+ * @author Marais-Viau
+ */
+class Session {
+	private final Consumer<Message> out;
+	private volatile boolean wantAnExit = false;
+
+	private String addr = null;
+	private String name = null;
+	private Index index = null;
+	private StorageAnnonce store = null;
+
+	/**
+	 * Constructor
+	 *
+	 * @param addr the address of the client
+	 * @param out  the way to send a response to the client
+	 */
+	Session(String addr, Consumer<Message> out) {
+		this.addr = addr;
+		this.out = out;
+		this.index = Index.getIndex();
+		this.store = StorageAnnonce.getStore();
+	}
+
+	/**
+	 * Tells if the client asked for a deconnection
+	 *
+	 * @return true if the connection must be closed
+	 */
+	boolean wantAnExit() {
+		return wantAnExit;
+	}
+
+	/**
+	 * Removes the connected user from the index, when the connection is closed
+	 */
+	void logout() {
+		if(name != null) {
+			index.removeUser(name);
+		}
+	}
+
+	private boolean notConnected() {
+		if(name == null) {
+			Message m = new Message(Message.MessageType.NOT_CONNECTED);
+			write(m);
+			Logs.warning("Access without connection from " + addr);
+		}
+		return name == null;
+	}
+
+	private void write(Message m) {
+		out.accept(m);
+	}
+
+	private void sendConnect(String[] args, boolean newUser, boolean send) {
+		Message msg = null;
+		if(send) {
+			if (newUser) {
+				msg = new Message(Message.MessageType.CONNECT_NEW_USER_OK, args);
+			} else {
+				msg = new Message(Message.MessageType.CONNECT_OK, args);
+			}
+			Logs.log("Connection complete with " + name + " on " + addr);
+		} else  {
+			if(newUser) {
+				msg = new Message(Message.MessageType.CONNECT_NEW_USER_KO);
+			} else {
+				msg = new Message(Message.MessageType.CONNECT_KO);
+			}
+			Logs.warning("Connection failed with " + addr + " -> retrying with new method");
+		}
+		write(msg);
+	}
+
+	private void connect(Message m) {
+		String[] args = m.getArgs();
+		boolean send = true, newUser = false;
+		if (args == null || args.length != 1 || args[0] == null) {
+			send = false;
+		} else {
+			String [] argSend = { "" };
+			if (args[0].charAt(0) == '#') { // ------------ Token
+				argSend = new String[2];
+				argSend[0] = args[0].substring(1);
+				if(index.isValidToken(argSend[0])) {
+					name = index.getUserFromToken(argSend[0]);
+					if (name == null) { send = false; }
+					argSend[1] = name;
+					index.updateIp(name, addr);
+				} else { send = false; }
+			} else { // ------------------------------------ User
+				name = args[0];
+				if(index.isValidUser(name)) {
+					argSend[0] = index.getToken(name);
+					if(argSend[0] == null) { argSend[0] = index.initNewToken(name); }
+					index.updateIp(name, addr);
+				} else {
+					newUser = true;
+					if(index.addUser(name, addr)) {
+						argSend[0] = index.getToken(name);
+					} else {
+						send = false;
+					}
+				}
+			}
+			sendConnect(argSend, newUser, send);
+		}
+	}
+
+	private void unknown(Message m) {
+		Message unknown = new Message(Message.MessageType.UNKNOWN_REQUEST);
+		write(unknown);
+		Logs.warning("Unknown header for " + addr + " -> skipping\n" + m);
+	}
+
+	private void postAnc(Message m) {
+		if(notConnected()) return;
+		String[] args = m.getArgs();
+		Message response = null;
+		if(args != null && args.length == 4) {
+			try {
+				Annonce anc = new Annonce(name, args[0], args[1], args[2], args[3]);
+				if(store.addAnnonce(anc)) {
+					String[] argSent = { anc.getId() };
+					response = new Message(Message.MessageType.POST_ANC_OK, argSent);
+					Logs.log("Create a new anc for " + addr + " with " + name);
+				}
+			} catch(IllegalArgumentException e) {}
+		}
+		if(response == null) {
+			Logs.warning("Failed posting new anc from " + addr + " with " + name);
+			response = new Message(Message.MessageType.POST_ANC_KO);
+		}
+		write(response);
+	}
+
+	private void majAnc(Message m) {
+		if(notConnected()) return;
+		String[] args = m.getArgs();
+		Message response = null;
+		if(args != null && args.length > 0) {
+			Annonce anc = store.find(args[0]);
+			if(anc != null && anc.getUser().equals(name)) {
+				if(anc.updateWithArgs(args)) {
+					String[] argSent = { anc.getId() };
+					response = new Message(Message.MessageType.MAJ_ANC_OK, argSent);
+					Logs.log("Update anc for " + addr + " with " + name);
+				}
+			}
+		}
+		if(response == null) {
+			response = new Message(Message.MessageType.MAJ_ANC_KO);
+			Logs.warning("Failed updating anc for " + addr + " with " + name);
+		}
+		write(response);
+	}
+
+	private void deleteAnc(Message m) {
+		if(notConnected()) return;
+		String[] args = m.getArgs();
+		Message response = null;
+		if(args != null && args.length == 1) {
+			Annonce anc = store.find(args[0]);
+			if(anc != null && anc.getUser().equals(name)) {
+				if(store.deleteAnnonce(anc)) {
+					String[] argSent = { anc.getId() };
+					response = new Message(Message.MessageType.DELETE_ANC_OK);
+					Logs.log("Delete anc for " + addr + " with " + name);
+				}
+			}
+		}
+		if(response == null) {
+			response = new Message(Message.MessageType.DELETE_ANC_KO);
+			Logs.warning("Failed deleting anc for " + addr + " with " + name);
+		}
+		write(response);
+	}
+
+	private void requestDomain() {
+		if(notConnected()) return;
+		String[] argsSent = store.getDomaines();
+		Message response = null;
+		if(argsSent.length > 0) {
+			response = new Message(Message.MessageType.SEND_DOMAINE_OK, argsSent);
+			Logs.log("Send domains to " + addr + " with " + name);
+		} else {
+			response = new Message(Message.MessageType.SEND_DOMAIN_KO);
+			Logs.warning("Failed sending domains to " + addr + " with " + name);
+		}
+		write(response);
+	}
+
+	private void requestAnc(Message m) {
+		if(notConnected()) return;
+		String[] args = m.getArgs();
+		Message response = null;
+		if(args != null && args.length == 1) {
+			try {
+				Domaine.DomaineType d = Domaine.fromString(args[0]);
+				String[] argsSent = store.getAncFromDomaine(d);
+				if(argsSent != null) {
+					response = new Message(Message.MessageType.SEND_ANC_OK, argsSent);
+					Logs.log("Request anc for " + addr + " with " + name);
+				}
+			} catch(IllegalArgumentException e) {}
+		}
+		if(response == null) {
+			response = new Message(Message.MessageType.SEND_ANC_KO);
+			Logs.warning("Failed requesting anc for " + addr + " with " + name);
+		}
+		write(response);
+	}
+
+	private void requestOwnAnc() {
+		if(notConnected()) return;
+		String[] argsSent = store.getUserAnc(name);
+		Message response = null;
+		if(argsSent != null) {
+			response = new Message(Message.MessageType.SEND_OWN_ANC_OK, argsSent);
+			Logs.log("Request own anc for " + addr + " with " + name);
+		} else {
+			response = new Message(Message.MessageType.SEND_OWN_ANC_KO);
+			Logs.warning("Failed requesting own anc for " + addr + " with " + name);
+		}
+		write(response);
+	}
+
+	private void requestIp(Message m) {
+		if(notConnected()) return;
+		String[] args = m.getArgs();
+		Message response = null;
+		if(args != null && args.length == 1) {
+			Annonce anc = store.find(args[0]);
+			if(anc != null) {
+				String ip = index.getIpFromUser(anc.getUser());
+				if(ip != null) {
+					String[] argsSent = new String[2];
+					argsSent[0] = ip.substring(1);
+					argsSent[1] = anc.getUser();
+					response = new Message(Message.MessageType.REQUEST_IP_OK, argsSent);
+					Logs.log("Request IP for " + addr + " with " + name + "-> " + argsSent[1] + "@" + argsSent[0]);
+				}
+			}
+		}
+		if(response == null) {
+			response = new Message(Message.MessageType.REQUEST_IP_KO);
+			Logs.warning("Failed requesting IP for " + addr + " with " + name);
+		}
+		write(response);
+	}
+
+	/**
+	 * Runs the operation asked by a message and writes its response
+	 *
+	 * @param m the message received from the client
+	 */
+	void handle(Message m) {
+		switch (m.getType()) {
+			case CONNECT:
+				connect(m);
+				break;
+			case DISCONNECT:
+				wantAnExit = true;
+				Logs.log("Ask for deconnection for " + addr);
+				break;
+			case POST_ANC:
+				postAnc(m);
+				break;
+			case MAJ_ANC:
+				majAnc(m);
+				break;
+			case DELETE_ANC:
+				deleteAnc(m);
+				break;
+			case REQUEST_DOMAIN:
+				requestDomain();
+				break;
+			case REQUEST_ANC:
+				requestAnc(m);
+				break;
+			case REQUEST_OWN_ANC:
+				requestOwnAnc();
+				break;
+			case REQUEST_IP:
+				requestIp(m);
+				break;
+			default:
+				unknown(m);
+				break;
+		}
+	}
+}
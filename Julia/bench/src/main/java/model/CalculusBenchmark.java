@@ -0,0 +1,82 @@
+package model;
+
+import javafx.scene.paint.Color;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks des unités de calcul sur des points fixes : les unités génériques
+ * Julia et Mandelbrot contre l'unité quadratique sur doubles primitifs
+ *
+ * @author marais bello
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class CalculusBenchmark {
+
+    private static final int ITERATION = 1000;
+    private static final Complex JULIA_POINT = new Complex(0.6008708272859217, -0.6589259796806967); // 136 itérations
+    private static final Complex MANDELBROT_POINT = new Complex(-0.1, 0.1); // Intérieur, 1000 itérations
+
+    private Calculus julia;
+    private Calculus mandelbrot;
+    private Calculus quadraticJulia;
+    private Calculus quadraticMandelbrot;
+
+    @Setup
+    public void setup() {
+        Complex c = new Complex(0.285, 0.01);
+        julia = new Julia(PolynomialFactory.makeFunction(new double[]{0.0, 0.0, 1.0}, c), ITERATION, 2.0);
+        mandelbrot = new Mandelbrot(ITERATION);
+        quadraticJulia = new QuadraticCalculus(c, ITERATION, 2.0);
+        quadraticMandelbrot = new QuadraticCalculus(ITERATION);
+        julia.start();
+        mandelbrot.start();
+        quadraticJulia.start();
+        quadraticMandelbrot.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        julia.stop();
+        mandelbrot.stop();
+        quadraticJulia.stop();
+        quadraticMandelbrot.stop();
+    }
+
+    @Benchmark
+    public Color juliaGetColorFrom() {
+        return julia.getColorFrom(JULIA_POINT);
+    }
+
+    @Benchmark
+    public Color mandelbrotGetColorFrom() {
+        return mandelbrot.getColorFrom(MANDELBROT_POINT);
+    }
+
+    @Benchmark
+    public int quadraticJulia() {
+        return quadraticJulia.iterate(JULIA_POINT.getReal(), JULIA_POINT.getImg());
+    }
+
+    @Benchmark
+    public int quadraticMandelbrot() {
+        return quadraticMandelbrot.iterate(MANDELBROT_POINT.getReal(), MANDELBROT_POINT.getImg());
+    }
+
+}
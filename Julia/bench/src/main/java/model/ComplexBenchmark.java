@@ -0,0 +1,58 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks des opérations de Complex
+ *
+ * @author marais bello
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ComplexBenchmark {
+
+    private Complex a;
+    private Complex b;
+
+    @Setup
+    public void setup() {
+        a = new Complex(1.0, 2.0);
+        b = new Complex(-0.4, 0.6);
+    }
+
+    @Benchmark
+    public Complex plus() {
+        return a.plus(b);
+    }
+
+    @Benchmark
+    public Complex times() {
+        return a.times(b);
+    }
+
+    @Benchmark
+    public Complex pow() {
+        return a.pow(5);
+    }
+
+    @Benchmark
+    public double module() {
+        return a.module();
+    }
+
+}
@@ -0,0 +1,76 @@
+package model;
+
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks du rendu complet d'une Grid selon la taille et le nombre de workers
+ * Le cache de tuiles est désactivé et la vue est invalidée avant chaque rendu :
+ * chaque appel recalcule toute l'image
+ *
+ * @author marais bello
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GridBenchmark {
+
+    @Param({"400", "800", "1600"})
+    private int size;
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    @Param({"mandelbrot", "julia"})
+    private String set;
+
+    private Grid grid;
+
+    @Setup
+    public void setup() {
+        Grid.GridBuilder b = Grid.builder()
+                .size(size, size)
+                .iteration(300)
+                .parallelism(parallelism)
+                .cacheSize(0);
+        if (set.equals("mandelbrot"))
+            b.mandelbrot();
+        else
+            b.function(new double[]{0.0, 0.0, 1.0}, 0.285, 0.01);
+        grid = b.build();
+    }
+
+    /**
+     * Rendu du buffer ARGB, sans JavaFX
+     */
+    @Benchmark
+    public int[] renderBuffer() {
+        grid.imageZoom(100);
+        return grid.renderBuffer();
+    }
+
+    /**
+     * Rendu complet jusqu'à l'image JavaFX
+     */
+    @Benchmark
+    public Image renderSceneMultiThreads() {
+        grid.imageZoom(100);
+        return grid.renderSceneMultiThreads();
+    }
+
+}
@@ -0,0 +1,61 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Benchmarks d'évaluation d'un polynome : lambdas de PolynomialFactory.makeFunction
+ * contre le schéma de Horner de PolynomialFactory.compile
+ *
+ * @author marais bello
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PolynomialBenchmark {
+
+    @Param({"2", "3", "6"})
+    private int degree;
+
+    private Function<Complex, Complex> lambda;
+    private Polynomial compiled;
+    private Complex x;
+
+    @Setup
+    public void setup() {
+        double[] coeffs = new double[degree + 1];
+        Arrays.fill(coeffs, 1, coeffs.length, 0.5);
+        coeffs[degree] = 1.0;
+        Complex c = new Complex(-0.8, 0.156);
+        lambda = PolynomialFactory.makeFunction(coeffs, c);
+        compiled = PolynomialFactory.compile(coeffs, c);
+        x = new Complex(0.3, -0.7);
+    }
+
+    @Benchmark
+    public Complex makeFunction() {
+        return lambda.apply(x);
+    }
+
+    @Benchmark
+    public Complex compile() {
+        return compiled.apply(x);
+    }
+
+}
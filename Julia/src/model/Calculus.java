@@ -2,6 +2,7 @@ package model;
 
 import javafx.scene.paint.Color;
 
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 /**
@@ -11,10 +12,19 @@ import java.util.function.Function;
  */
 abstract class Calculus {
 
-    private final int iteration;
+    private int iteration; // Modifié seulement entre deux rendus, par le réglage automatique de Grid
     private final double limite;
+    static final double PERIOD_EPSILON = 1e-12; // Distance à partir de laquelle l'orbite est un cycle
+    static final int INFINITE_LIMIT = 1 << 18; // Nombre d'itérations maximum du mode infini
+    static final int CONVERGED = -1; // Mode infini : l'orbite boucle, le point est dans l'ensemble
+    static final int UNDECIDED = -2; // Mode infini : le point n'est pas sorti avant la limite demandée
+
+    private final double logLimite; // Logarithme de la limite, pour le lissage
     private final Function<Complex, Complex> f;
-    private boolean run;
+    private volatile boolean run;
+    private boolean periodicity; // Détection des cycles et rejet des zones intérieures connues
+    private LongAdder executed; // Itérations exécutées, null sans instrumentation
+    private LongAdder interior; // Points déclarés intérieurs par rejet ou cycle, null sans instrumentation
 
     /**
      * Constructeur
@@ -26,6 +36,7 @@ abstract class Calculus {
     Calculus(int iteration, double limite, Function<Complex, Complex> f) {
         this.iteration = iteration;
         this.limite = limite;
+        this.logLimite = Math.log(limite);
         this.f = f;
         this.run = false;
     }
@@ -40,6 +51,16 @@ abstract class Calculus {
         return Color.rgb((value * 10) % 255, (value * 30) % 255, (value * 50) % 255);
     }
 
+    /**
+     * Convertisseur de couleurs de int -> ARGB, même palette que intToColor
+     *
+     * @param value nombre d'itérations
+     * @return la couleur au format ARGB 32 bits
+     */
+    static int intToArgb(int value) {
+        return 0xFF000000 | ((value * 10) % 255) << 16 | ((value * 30) % 255) << 8 | ((value * 50) % 255);
+    }
+
     /**
      * Getter de l'itération
      */
@@ -47,6 +68,16 @@ abstract class Calculus {
         return this.iteration;
     }
 
+    /**
+     * Setter de l'itération, à n'appeler qu'en dehors d'un rendu
+     *
+     * @param iteration le nombre d'itérations, strictement positif
+     */
+    final void setIteration(int iteration) {
+        if (iteration > 0)
+            this.iteration = iteration;
+    }
+
     /**
      * Getter pour la limite
      */
@@ -61,6 +92,89 @@ abstract class Calculus {
         return this.run;
     }
 
+    /**
+     * Indique si la détection des cycles est active
+     */
+    final boolean checkPeriodicity() {
+        return this.periodicity;
+    }
+
+    /**
+     * Active ou désactive la détection des cycles : une orbite qui revient
+     * sur un point déjà visité ne sortira jamais de la limite, le calcul
+     * s'arrête alors avec le nombre d'itérations maximum
+     *
+     * @param periodicity true pour activer la détection
+     */
+    final void setPeriodicity(boolean periodicity) {
+        this.periodicity = periodicity;
+    }
+
+    /**
+     * Active ou désactive le comptage des itérations exécutées et des points déclarés
+     * intérieurs avant la limite. Sans instrumentation, les noyaux ne paient qu'un test par point.
+     *
+     * @param instrumented true pour compter
+     */
+    final void setInstrumented(boolean instrumented) {
+        this.executed = instrumented ? new LongAdder() : null;
+        this.interior = instrumented ? new LongAdder() : null;
+    }
+
+    /**
+     * Indique si les itérations sont comptées
+     */
+    final boolean isInstrumented() {
+        return executed != null;
+    }
+
+    /**
+     * Ajoute des itérations exécutées au compteur, sans effet sans instrumentation
+     *
+     * @param n le nombre d'itérations
+     */
+    final void countIterations(long n) {
+        LongAdder a = executed;
+        if (a != null)
+            a.add(n);
+    }
+
+    /**
+     * Compte des points déclarés intérieurs par rejet ou détection de cycle,
+     * sans effet sans instrumentation
+     *
+     * @param n le nombre de points
+     */
+    final void countInterior(long n) {
+        LongAdder a = interior;
+        if (a != null)
+            a.add(n);
+    }
+
+    /**
+     * Remet les compteurs à zéro
+     */
+    final void resetCounters() {
+        if (executed != null) {
+            executed.reset();
+            interior.reset();
+        }
+    }
+
+    /**
+     * Getter du nombre d'itérations exécutées depuis la remise à zéro, 0 sans instrumentation
+     */
+    final long getExecuted() {
+        return (executed == null) ? 0 : executed.sum();
+    }
+
+    /**
+     * Getter du nombre de points déclarés intérieurs avant la limite depuis la remise à zéro
+     */
+    final long getInterior() {
+        return (interior == null) ? 0 : interior.sum();
+    }
+
     /**
      * Getter de la fonction de calcul
      */
@@ -83,20 +197,102 @@ abstract class Calculus {
     }
 
     /**
-     * Méthode abstraite pour calculer la limite d'une valeur
+     * Partie fractionnaire du nombre d'itérations lissé (log-log) d'un point sorti de la limite :
+     * n + 1 - log(log|z| / log(limite)) / log(degré), où z est le premier point hors de la limite.
+     * Elle vaut presque 1 pour un point qui vient de dépasser la limite et presque 0 pour un point
+     * qui l'a largement dépassée, ce qui raccorde les bandes n et n + 1 sans discontinuité
+     *
+     * @param modulus2 le carré du module du premier point hors de la limite
+     * @param degree   le degré de la fonction itérée
+     * @return la fraction, entre 0 et 1
+     */
+    final float smoothFraction(double modulus2, int degree) {
+        if (degree < 2 || logLimite <= 0)
+            return 0;
+        double t = Math.log(0.5 * Math.log(modulus2) / logLimite) / Math.log(degree);
+        return (float) Math.min(1, Math.max(0, 1 - t));
+    }
+
+    /**
+     * Calcule le nombre d'itérations d'une valeur
+     *
+     * @param real la partie réelle du pixel
+     * @param img  la partie imaginaire du pixel
+     * @return le nombre d'itérations avant de sortir de la limite
+     */
+    final int iterate(double real, double img) {
+        return iterate(real, img, null, 0);
+    }
+
+    /**
+     * Méthode abstraite pour calculer le nombre d'itérations d'une valeur
+     * Le module du dernier point de l'orbite, déjà connu du calcul, donne en plus
+     * la partie fractionnaire du nombre d'itérations lissé (smoothFraction)
+     *
+     * @param real     la partie réelle du pixel
+     * @param img      la partie imaginaire du pixel
+     * @param fraction reçoit la partie fractionnaire, 0 pour un point qui ne sort pas ; peut être null
+     * @param at       la case de fraction à écrire
+     * @return le nombre d'itérations avant de sortir de la limite
+     */
+    abstract int iterate(double real, double img, float[] fraction, int at);
+
+    /**
+     * Calcule le nombre d'itérations de plusieurs points d'une même ligne
+     * Par défaut chaque point est calculé séparément, les unités rapides
+     * redéfinissent cette méthode pour itérer plusieurs points à la fois
+     *
+     * @param real     les parties réelles des points
+     * @param img      la partie imaginaire commune aux points
+     * @param out      reçoit les nombres d'itérations
+     * @param fraction reçoit les parties fractionnaires lissées, peut être null
+     * @param count    le nombre de points
+     */
+    void iterateRow(double[] real, double img, int[] out, float[] fraction, int count) {
+        for (int k = 0; k < count; k++)
+            out[k] = iterate(real[k], img, fraction, k);
+    }
+
+    /**
+     * Méthode abstraite du mode infini : itère un point sans nombre d'itérations fixé,
+     * jusqu'à ce qu'il sorte de la limite, que son orbite boucle ou que cap soit atteint.
+     * L'orbite d'un point indécis est rangée dans orbit pour être reprise par un appel
+     * suivant avec une limite plus haute, sans refaire les premières itérations.
+     * La détection de cycle est toujours active dans ce mode.
+     *
+     * @param real     la partie réelle du pixel
+     * @param img      la partie imaginaire du pixel
+     * @param orbit    le point courant de l'orbite en 2 * slot et 2 * slot + 1, lu si from > 0, écrit si le point reste indécis
+     * @param slot     la case du point dans orbit
+     * @param from     le nombre d'itérations déjà faites, 0 pour partir du pixel
+     * @param cap      le nombre d'itérations à ne pas dépasser
+     * @param fraction reçoit la partie fractionnaire lissée d'un point sorti, peut être null
+     * @param at       la case de fraction à écrire
+     * @return le nombre d'itérations si le point sort, CONVERGED si son orbite boucle,
+     * UNDECIDED si cap est atteint ou si le calcul est arrêté
+     */
+    abstract int iterateInfinite(double real, double img, double[] orbit, int slot, int from, int cap,
+                                 float[] fraction, int at);
+
+    /**
+     * Calcule la limite d'une valeur
      *
      * @param x0 le pixel pour lequel on calcule le nombre d'itération
      * @return la couleur à associer à ce pixel
      */
-    abstract Color getColorFrom(Complex x0);
+    final Color getColorFrom(Complex x0) {
+        return intToColor(iterate(x0.getReal(), x0.getImg()));
+    }
 
     /**
-     * Méthode abstraite pour calculer la limite d'une valeur
-     * de façon infinie
+     * Calcule la limite d'une valeur de façon infinie, dans la limite de INFINITE_LIMIT itérations
      *
      * @param x0 le pixel pour lequel on calcule le nombre d'itération
      * @return la couleur à associer à ce pixel
      */
-    abstract Color getInfiniteColorFrom(Complex x0);
+    final Color getInfiniteColorFrom(Complex x0) {
+        int n = iterateInfinite(x0.getReal(), x0.getImg(), new double[2], 0, 0, INFINITE_LIMIT, null, 0);
+        return intToColor((n < 0) ? INFINITE_LIMIT : n);
+    }
 
 }
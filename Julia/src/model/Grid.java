@@ -1,15 +1,28 @@
 package model;
 
 import javafx.scene.image.Image;
-import javafx.scene.image.PixelWriter;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.WritableImage;
-import javafx.scene.paint.Color;
 
-import java.util.LinkedList;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * Classe de gestion de la grille de calcul de Julia
@@ -18,13 +31,72 @@ import java.util.concurrent.RecursiveAction;
  */
 public final class Grid {
 
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>(); // Pools partagés
+    private static final ThreadFactory DAEMONS = (r) -> {
+        Thread t = new Thread(r, "grid-render");
+        t.setDaemon(true);
+        return t;
+    };
+    private static final ExecutorService SUBMITTED = Executors.newCachedThreadPool(DAEMONS); // Rendus soumis
+    private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(DAEMONS);
+    private static final int[] PROGRESSIVE_STEPS = {8, 4, 2, 1}; // Pas des passes progressives
+    private static final int ALIGN = PROGRESSIVE_STEPS[0]; // Alignement des tuiles
+    private static final double DEEP_ZOOM = 1e10; // Zoom à partir duquel les doubles ne suffisent plus
+    private static final int EDGE_GRADIENT = 1; // Écart d'itérations avec un voisin au-delà duquel un pixel est suréchantillonné
+    private static final int SAMPLE_BATCH = 64; // Pixels suréchantillonnés par tâche
+    private static final int PROBE = 64; // Colonnes de la sonde du réglage automatique des itérations
+    private static final int PROBE_FACTOR = 8; // Limite de la sonde, en multiple de la limite due au zoom
+    private static final int AUTO_LIMIT = 1 << 16; // Limite la plus haute choisie par le réglage automatique
+    private static final double ESCAPE_QUANTILE = 0.999; // Part des pixels sortis de la sonde à garder
+
     private final double sizeX; // Taille de l'axe X
     private final double sizeY; // Taille de l'axe Y
     private final Calculus colorUnit; // Unité de calcul
-    private final Image render; // Image
-    private Complex origin; // Origin du repère
+    private final int width; // Largeur de l'image
+    private final int height; // Hauteur de l'image
+    private final Frame full; // Place du buffer de l'image entière
+    private WritableImage render; // Image, créée au premier rendu graphique
+    private int[] iterations; // Nombres d'itérations, une case par pixel
+    private float[] fractions; // Parties fractionnaires des itérations lissées, null sans lissage
+    private int[] pixels; // Buffer ARGB, une case par pixel
+    private volatile Palette palette; // Palette de couleurs
+    private int[] lut; // Table de la palette
+    private Palette lutPalette; // Palette de la table
+    private BigDecimal originReal, originImg; // Origine du repère, exacte pour les zooms profonds
     private double zoom; // Zoom
-    private boolean run, infinity;
+    private double viewReal, viewImg, viewZoom; // Origine et zoom figés pendant un rendu
+    private BigDecimal viewExactReal, viewExactImg; // Origine exacte figée pendant un rendu
+    private double shiftX, shiftY; // Décalage en pixels depuis le dernier rendu du buffer
+    private boolean zoomed; // Zoom modifié depuis le dernier rendu du buffer
+    private boolean bufferValid; // Le buffer contient un rendu complet
+    private final TileCache cache; // Cache des tuiles, null si désactivé
+    private volatile boolean run;
+    private final boolean infinity;
+    private final AtomicInteger depth; // Mode infini : limite d'itérations la plus haute atteinte par le rendu
+    private final Object renderLock; // Un seul rendu à la fois sur le buffer
+    private final AtomicInteger generation; // Numéro du dernier rendu progressif demandé
+    private final AtomicReference<RenderHandle> submitted; // Handle du dernier rendu soumis
+    private final int tileSize; // Côté d'une tuile, multiple de ALIGN
+    private final int parallelism; // Nombre de workers
+    private final RenderStrategy strategy; // Calcul pixel par pixel ou par suivi de bords
+    private final boolean lanes; // Calcul des lignes par paquets de points
+    private final boolean deepZoom; // Calcul par perturbation au-delà de DEEP_ZOOM
+    private Perturbation reference; // Orbite de référence du rendu, null hors zoom profond
+    private final int samples; // Côté de la grille de sous-pixels, 1 sans anticrénelage
+    private Edges edges; // Pixels suréchantillonnés du buffer et leurs sous-pixels, null si aucun
+    private final boolean smooth; // Coloration continue par itérations lissées
+    private final LongAdder tilesDone, busyTime, evaluations;
+    private final LongAdder areaDone; // Pixels parcourus par le rendu en cours, toutes passes confondues
+    private volatile long areaTotal; // Pixels à parcourir par le rendu en cours
+    private final boolean instrumented; // Statistiques détaillées des rendus
+    private final boolean autoIteration; // Limite d'itérations choisie à chaque vue par une sonde
+    private final int baseIteration; // Limite demandée, plancher du réglage automatique
+    private double tunedZoom; // Vue de la dernière sonde
+    private BigDecimal tunedReal, tunedImg;
+    private final LongAccumulator tileTimeMax; // Durée de la tuile la plus longue du rendu en cours, en ns
+    private final Map<String, LongAdder> workerTime; // Temps de calcul par worker du rendu en cours, en ns
+    private RenderStatistics statistics;
+
     /**
      * Constructeur
      *
@@ -33,13 +105,38 @@ public final class Grid {
     private Grid(GridBuilder g) {
         this.sizeX = g.correctSizeX();
         this.sizeY = g.correctSizeY();
-        this.origin = new Complex(0, 0);
+        this.originReal = BigDecimal.ZERO;
+        this.originImg = BigDecimal.ZERO;
         this.zoom = 1;
-        this.render = new WritableImage(g.x, g.y);
-        this.colorUnit = g.unit;
+        this.width = g.x;
+        this.height = g.y;
+        this.full = new Frame(0, 0, width);
+        this.colorUnit = g.makeUnit();
         this.run = false;
         this.infinity = g.infinity;
-        initImage();
+        this.depth = new AtomicInteger(colorUnit.getIteration());
+        this.tileSize = (g.tileSize + ALIGN - 1) / ALIGN * ALIGN;
+        this.parallelism = g.parallelism;
+        this.tilesDone = new LongAdder();
+        this.busyTime = new LongAdder();
+        this.evaluations = new LongAdder();
+        this.areaDone = new LongAdder();
+        this.instrumented = g.instrumented;
+        this.autoIteration = g.autoIteration && !g.infinity;
+        this.baseIteration = g.iteration;
+        this.tileTimeMax = new LongAccumulator(Math::max, 0);
+        this.workerTime = new ConcurrentHashMap<>();
+        this.strategy = g.correctStrategy();
+        this.lanes = g.lanes;
+        this.deepZoom = g.deepZoom;
+        this.samples = g.samples;
+        this.smooth = g.smooth;
+        this.renderLock = new Object();
+        this.generation = new AtomicInteger();
+        this.submitted = new AtomicReference<>();
+        // Le cache ne garde que les nombres d'itérations entiers de la dernière passe, sans ceux du mode infini
+        this.cache = (g.cacheSize > 0 && !g.smooth && !g.infinity) ? new TileCache(g.cacheSize) : null;
+        this.palette = g.palette;
     }
 
     /**
@@ -60,6 +157,43 @@ public final class Grid {
         return this.zoom;
     }
 
+    /**
+     * Renvoie le nombre d'itérations maximum du calcul
+     *
+     * @return le nombre d'itérations
+     */
+    public int getMaxIteration() {
+        return colorUnit.getIteration();
+    }
+
+    /**
+     * Renvoie la limite d'itérations la plus haute atteinte par le dernier rendu
+     * En mode infini, elle est relevée tuile par tuile tant que des pixels restent indécis
+     *
+     * @return le nombre d'itérations
+     */
+    public int getDepth() {
+        return depth.get();
+    }
+
+    /**
+     * Renvoie la taille d'un pixel dans le plan complexe au zoom courant
+     *
+     * @return l'écart entre deux pixels voisins
+     */
+    public synchronized double getPixelSize() {
+        return sizeX / (width * zoom);
+    }
+
+    /**
+     * Renvoie les statistiques du dernier rendu
+     *
+     * @return les statistiques, null si aucun rendu n'a été fait
+     */
+    public RenderStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Renvoie l'état de la grille
      *
@@ -76,8 +210,8 @@ public final class Grid {
      * @return la coordonée de x dans le plan complexe
      */
     private double calculateXCoordinate(double j) {
-        double xs = j - (render.getWidth() / 2);
-        return (xs * sizeX) / (render.getWidth() * zoom);
+        double xs = j - (width / 2.0);
+        return (xs * sizeX) / (width * viewZoom);
     }
 
     /**
@@ -87,20 +221,57 @@ public final class Grid {
      * @return la coordonée de y dans le plan complexe
      */
     private double calculateYCoordinate(double i) {
-        double ys = (render.getHeight() / 2) - i;
-        return (ys * sizeY) / (render.getHeight() * zoom);
+        double ys = (height / 2.0) - i;
+        return (ys * sizeY) / (height * viewZoom);
     }
 
     /**
-     * Initialise l'image avec des pixels noirs
+     * Initialise les buffers avec des pixels noirs
      */
-    private void initImage() {
-        PixelWriter writer = ((WritableImage) render).getPixelWriter();
-        for (int i = 0; i < render.getHeight(); i++) {
-            for (int j = 0; j < render.getWidth(); j++) {
-                writer.setColor(j, i, Color.BLACK);
-            }
+    private void initBuffer() {
+        iterations = new int[width * height];
+        fractions = smooth ? new float[width * height] : null;
+        pixels = new int[width * height];
+        Arrays.fill(pixels, 0xFF000000);
+    }
+
+    /**
+     * Colore des nombres d'itérations avec la palette courante
+     *
+     * @param src      les nombres d'itérations
+     * @param fraction leurs parties fractionnaires, null sans lissage
+     * @param dst      le buffer ARGB de sortie, peut être src
+     * @param length   le nombre de cases à colorer
+     */
+    private void colorize(int[] src, float[] fraction, int[] dst, int length) {
+        Palette p = palette;
+        int max = colorUnit.getIteration();
+        int[] table = lut;
+        if (table == null || lutPalette != p) {
+            table = p.table(max);
+            lut = table;
+            lutPalette = p;
         }
+        // En mode infini, les points sortis pendant la reprise dépassent max sans être dans l'ensemble
+        IterationBuffer.colorize(p, table, max, infinity ? Calculus.INFINITE_LIMIT : max, src, fraction, dst, length);
+    }
+
+    /**
+     * Renvoie la largeur de l'image
+     *
+     * @return la largeur en pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Renvoie la hauteur de l'image
+     *
+     * @return la hauteur en pixels
+     */
+    public int getHeight() {
+        return height;
     }
 
     /**
@@ -108,9 +279,10 @@ public final class Grid {
      *
      * @param z le zoom (en %)
      */
-    public void zoomGrid(double z) {
+    public synchronized void zoomGrid(double z) {
         if (this.zoom + (this.zoom * 10 / z) > 0) {
             this.zoom += this.zoom * 10 / z;
+            this.zoomed = true;
         }
     }
 
@@ -119,10 +291,11 @@ public final class Grid {
      *
      * @param z le zoom en pourcentage
      */
-    public void imageZoom(double z) {
+    public synchronized void imageZoom(double z) {
         if (z >= 0)
             this.zoom = 1;
         this.zoom = z / 100;
+        this.zoomed = true;
     }
 
     /**
@@ -131,11 +304,108 @@ public final class Grid {
      * @param x le décalage en abscisse dans l'image
      * @param y le décalage en ordonnée dans l'image
      */
-    public void moveOrigin(double x, double y) {
-        this.origin = new Complex(
-                origin.getReal() + (x / zoom),
-                origin.getImg() + (y / zoom)
-        );
+    public synchronized void moveOrigin(double x, double y) {
+        this.originReal = originReal.add(new BigDecimal(x / zoom));
+        this.originImg = originImg.add(new BigDecimal(y / zoom));
+        this.shiftX += x * width / sizeX;
+        this.shiftY += y * height / sizeY;
+    }
+
+    /**
+     * Place l'origine du plan complexe en un point exact,
+     * pour atteindre directement une zone de zoom profond
+     *
+     * @param real la partie réelle de l'origine
+     * @param img  la partie imaginaire de l'origine
+     */
+    public synchronized void setOrigin(BigDecimal real, BigDecimal img) {
+        this.originReal = real;
+        this.originImg = img;
+        this.zoomed = true;
+    }
+
+    /**
+     * Fige l'origine et le zoom utilisés par le rendu qui commence
+     */
+    private synchronized void snapshotView() {
+        viewExactReal = originReal;
+        viewExactImg = originImg;
+        viewReal = originReal.doubleValue();
+        viewImg = originImg.doubleValue();
+        viewZoom = zoom;
+    }
+
+    /**
+     * Prépare le rendu du buffer complet : si l'origine a seulement été déplacée
+     * d'un nombre entier de pixels depuis le dernier rendu complet, le buffer est
+     * décalé et seules les bandes découvertes restent à calculer
+     *
+     * @return les rectangles {x0, y0, x1, y1} à calculer
+     */
+    private synchronized int[][] prepareBuffer() {
+        snapshotView();
+        // Les pixels gardés ont été calculés avec l'ancienne limite
+        boolean retuned = tune();
+        int dx = (int) Math.round(shiftX), dy = (int) Math.round(shiftY);
+        boolean reuse = iterations != null && bufferValid && !zoomed && !retuned
+                && Math.abs(shiftX - dx) < 1e-6 && Math.abs(shiftY - dy) < 1e-6
+                && Math.abs(dx) < width && Math.abs(dy) < height;
+        shiftX = 0;
+        shiftY = 0;
+        zoomed = false;
+        bufferValid = false;
+        edges = null;
+        if (iterations == null)
+            initBuffer();
+        if (!reuse)
+            return new int[][]{{0, 0, width, height}};
+        shiftPixels(dx, dy);
+        List<int[]> rects = new ArrayList<>();
+        if (dy > 0)
+            rects.add(new int[]{0, 0, width, dy});
+        else if (dy < 0)
+            rects.add(new int[]{0, height + dy, width, height});
+        int top = Math.max(0, dy), bottom = Math.min(height, height + dy);
+        if (dx > 0)
+            rects.add(new int[]{width - dx, top, width, bottom});
+        else if (dx < 0)
+            rects.add(new int[]{0, top, -dx, bottom});
+        return rects.toArray(new int[0][]);
+    }
+
+    /**
+     * Décale le buffer d'itérations : le nouveau pixel (j, i) est l'ancien pixel (j + dx, i - dy)
+     *
+     * @param dx le décalage en abscisse
+     * @param dy le décalage en ordonnée
+     */
+    private void shiftPixels(int dx, int dy) {
+        int jStart = Math.max(0, -dx), len = width - Math.abs(dx);
+        if (dy >= 0) {
+            for (int i = height - 1; i >= dy; i--)
+                shiftRow((i - dy) * width + jStart + dx, i * width + jStart, len);
+        } else {
+            for (int i = 0; i < height + dy; i++)
+                shiftRow((i - dy) * width + jStart + dx, i * width + jStart, len);
+        }
+    }
+
+    /**
+     * Copie une portion de ligne des buffers d'itérations
+     */
+    private void shiftRow(int from, int to, int len) {
+        System.arraycopy(iterations, from, iterations, to, len);
+        if (fractions != null)
+            System.arraycopy(fractions, from, fractions, to, len);
+    }
+
+    /**
+     * Indique la fin du rendu du buffer
+     *
+     * @param complete true si tous les pixels ont été calculés
+     */
+    private synchronized void endBuffer(boolean complete) {
+        bufferValid = complete;
     }
 
     /**
@@ -147,46 +417,602 @@ public final class Grid {
     }
 
     /**
-     * Créer la liste des Threads à lancer dans la pool
+     * Arrête le calcul s'il s'agit encore du rendu soumis demandé
      *
-     * @return la liste des tâches
+     * @param gen le numéro du rendu
      */
-    private List<ForkJoinTask> createTask(int nbProcessors) {
-        List<ForkJoinTask> tasksList = new LinkedList<>();
-        ForkJoinPool pool = new ForkJoinPool(nbProcessors);
-        for (int i = 0; i < nbProcessors; i++) {
-            tasksList.add(
-                    pool.submit(
-                            new GridThread(
-                                    i * ((int) render.getHeight()) / nbProcessors,
-                                    (i + 1) * ((int) render.getHeight()) / nbProcessors
-                            )
-                    )
-            );
+    void stop(int gen) {
+        if (gen == generation.get())
+            stop();
+    }
+
+    /**
+     * Indique si un rendu progressif a été remplacé par un rendu plus récent
+     *
+     * @param gen le numéro du rendu, 0 pour un rendu qui n'est pas remplacé
+     * @return true si le rendu doit être abandonné
+     */
+    private boolean superseded(int gen) {
+        return gen != 0 && gen != generation.get();
+    }
+
+    /**
+     * Renvoie la progression du rendu en cours ou du dernier rendu
+     *
+     * @return le pourcentage de pixels parcourus, entre 0 et 100
+     */
+    public int getProgress() {
+        long total = areaTotal;
+        return (total == 0) ? 0 : (int) Math.min(100, areaDone.sum() * 100 / total);
+    }
+
+    /**
+     * Renvoie le pool partagé de la taille demandée, créé au premier appel
+     *
+     * @param parallelism le nombre de workers
+     * @return le pool
+     */
+    private static ForkJoinPool getPool(int parallelism) {
+        return POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+
+    /**
+     * Calcule des rectangles de l'image dans le buffer cible en une ou plusieurs passes
+     * L'image est découpée récursivement en tuiles réparties par vol de tâches,
+     * chaque worker écrit dans sa propre zone du buffer
+     *
+     * @param target   le buffer d'itérations
+     * @param fraction le buffer des parties fractionnaires, indexé comme target, null sans lissage
+     * @param frame    la place du buffer dans l'image
+     * @param rects    les rectangles {x0, y0, x1, y1} à calculer, contenus dans frame
+     * @param steps    les pas successifs entre deux pixels calculés, décroissants
+     * @param onPass   action appelée après chaque passe terminée, peut être null
+     * @param gen      le numéro du rendu progressif, abandonné dès qu'un plus récent est demandé ;
+     *                 0 pour un rendu qui n'est pas remplacé
+     * @return true si le rendu n'a pas été interrompu
+     */
+    private boolean render(int[] target, float[] fraction, Frame frame, int[][] rects, int[] steps, Runnable onPass,
+                           int gen) {
+        this.run = true;
+        tune();
+        colorUnit.start();
+        // Un rendu plus récent a pu appeler stop() avant que celui-ci ne démarre
+        if (superseded(gen)) {
+            this.run = false;
+            colorUnit.stop();
+            return false;
+        }
+        prepareReference();
+        ForkJoinPool pool = getPool(parallelism);
+        long steals = pool.getStealCount();
+        tilesDone.reset();
+        busyTime.reset();
+        evaluations.reset();
+        areaDone.reset();
+        tileTimeMax.reset();
+        workerTime.clear();
+        colorUnit.resetCounters();
+        long area = 0;
+        for (int[] r : rects)
+            area += (long) (r[2] - r[0]) * (r[3] - r[1]);
+        // Le mode infini ajoute une passe de reprise des pixels indécis
+        areaTotal = area * (steps.length + (infinity ? 1 : 0));
+        depth.set(colorUnit.getIteration());
+        long beg = System.nanoTime();
+        for (int k = 0; k < steps.length && this.run && !superseded(gen); k++) {
+            for (int[] r : rects) {
+                try {
+                    pool.invoke(new TileTask(target, fraction, frame, steps[k], (k == 0) ? 0 : steps[k - 1],
+                            false, r[0], r[1], r[2], r[3]));
+                } catch (Exception e) {
+                    System.out.println("Error with multithreading");
+                }
+            }
+            // Mode infini : les pixels indécis de la dernière passe sont repris avec des limites croissantes
+            for (int r = 0; infinity && k == steps.length - 1 && r < rects.length
+                    && this.run && !superseded(gen); r++) {
+                try {
+                    pool.invoke(new RefineTask(target, fraction, frame,
+                            rects[r][0], rects[r][1], rects[r][2], rects[r][3]));
+                } catch (Exception e) {
+                    System.out.println("Error with multithreading");
+                }
+            }
+            if (onPass != null && this.run && !superseded(gen))
+                onPass.run();
+        }
+        boolean complete = this.run && !superseded(gen);
+        long wall = (System.nanoTime() - beg) / 1_000_000;
+        if (instrumented) {
+            statistics = measure(target, frame, rects, complete, area, pool.getStealCount() - steals, wall);
+        } else {
+            statistics = new RenderStatistics(parallelism, tilesDone.sum(), pool.getStealCount() - steals,
+                    evaluations.sum(), wall, busyTime.sum() / 1_000_000);
         }
-        return tasksList;
+        this.run = false;
+        colorUnit.stop();
+        return complete;
+    }
+
+    /**
+     * Rassemble les statistiques détaillées d'un rendu : compteurs des unités de calcul,
+     * temps des tuiles et des workers, et histogramme des itérations des rectangles calculés
+     *
+     * @param target   le buffer d'itérations
+     * @param frame    la place du buffer dans l'image
+     * @param rects    les rectangles {x0, y0, x1, y1} calculés
+     * @param complete true si le rendu n'a pas été interrompu
+     * @param area     le nombre de pixels des rectangles
+     * @param steals   le nombre de vols de tâches du rendu
+     * @param wall     la durée du rendu en ms
+     * @return les statistiques
+     */
+    private RenderStatistics measure(int[] target, Frame frame, int[][] rects, boolean complete, long area,
+                                     long steals, long wall) {
+        long[] histogram = new long[RenderStatistics.BUCKETS];
+        long capped = 0;
+        // En mode infini, seuls les pixels de l'ensemble atteignent INFINITE_LIMIT
+        int cap = infinity ? Calculus.INFINITE_LIMIT : colorUnit.getIteration();
+        for (int[] r : rects) {
+            for (int i = r[1]; i < r[3]; i++) {
+                int index = frame.index(i, 0);
+                for (int j = r[0]; j < r[2]; j++) {
+                    int n = target[index + j];
+                    if (n >= cap)
+                        capped++;
+                    else
+                        histogram[RenderStatistics.bucket(n)]++;
+                }
+            }
+        }
+        Map<String, Long> workers = new ConcurrentHashMap<>();
+        workerTime.forEach((name, time) -> workers.put(name, time.sum() / 1_000_000));
+        return new RenderStatistics(parallelism, tilesDone.sum(), steals, evaluations.sum(), wall,
+                busyTime.sum() / 1_000_000, true, colorUnit.getExecuted(), colorUnit.getInterior(), area, capped,
+                complete ? 0 : Math.max(0, areaTotal - areaDone.sum()), tileTimeMax.get() / 1000, histogram, workers);
+    }
+
+    /**
+     * Compte le temps de calcul d'une tuile, par worker si le rendu est instrumenté
+     *
+     * @param time la durée en ns
+     */
+    private void countBusy(long time) {
+        busyTime.add(time);
+        if (instrumented) {
+            tileTimeMax.accumulate(time);
+            workerTime.computeIfAbsent(Thread.currentThread().getName(), (name) -> new LongAdder()).add(time);
+        }
+    }
+
+    /**
+     * Choisit la limite d'itérations de la vue figée et l'affiche
+     * Sans réglage automatique, renvoie la limite demandée
+     *
+     * @return la limite d'itérations utilisée par les prochains rendus de cette vue
+     */
+    public int tuneIteration() {
+        synchronized (renderLock) {
+            snapshotView();
+            tune();
+        }
+        return colorUnit.getIteration();
+    }
+
+    /**
+     * Réglage automatique : choisit la limite d'itérations de la vue figée, une seule fois par vue.
+     * Une sonde de PROBE colonnes répartie sur toute la vue est calculée avec une limite haute ;
+     * la limite retenue est la borne de la case de l'histogramme des sorties qui contient
+     * ESCAPE_QUANTILE des pixels sortis de la sonde, au moins la limite due au zoom.
+     * Tant que cette case est la dernière sous la limite de la sonde, des pixels sortent
+     * sans doute plus loin : les pixels restants sont repris avec une limite quatre fois
+     * plus haute, jusqu'à AUTO_LIMIT. La sonde ne dépend que de la vue : deux grilles
+     * identiques, par exemple deux workers d'un rendu distribué, choisissent la même limite.
+     *
+     * @return true si la limite a changé
+     */
+    private boolean tune() {
+        // Comparaison des valeurs : un même centre peut être écrit avec des échelles différentes
+        if (!autoIteration || (viewZoom == tunedZoom && tunedReal != null
+                && viewExactReal.compareTo(tunedReal) == 0 && viewExactImg.compareTo(tunedImg) == 0))
+            return false;
+        // Limite minimale au zoom courant : les détails fins demandent des orbites plus longues
+        int floor = (int) Math.min(AUTO_LIMIT, baseIteration
+                + ((viewZoom > 1) ? 50 * Math.pow(Math.log10(viewZoom), 1.25) : 0));
+        int probe = Math.min(AUTO_LIMIT, Integer.highestOneBit(PROBE_FACTOR * floor - 1) << 1);
+        int rows = Math.max(1, PROBE * height / width);
+        int[] pending = new int[PROBE * rows]; // Points de la sonde pas encore sortis
+        for (int k = 0; k < pending.length; k++)
+            pending[k] = k;
+        int count = pending.length, old = colorUnit.getIteration();
+        long[] histogram = new long[RenderStatistics.BUCKETS];
+        long chosen;
+        colorUnit.start();
+        while (true) {
+            colorUnit.setIteration(probe);
+            prepareReference();
+            int kept = 0;
+            for (int k = 0; k < count; k++) {
+                int c = pending[k] % PROBE, r = pending[k] / PROBE;
+                int n = iteratePoint(calculateXCoordinate((c + 0.5) * width / PROBE),
+                        calculateYCoordinate((r + 0.5) * height / rows), null, 0);
+                if (n < probe)
+                    histogram[RenderStatistics.bucket(n)]++;
+                else
+                    pending[kept++] = pending[k];
+            }
+            count = kept;
+            if (!colorUnit.getRunStatut()) {
+                // Sonde interrompue : la vue sera sondée au prochain rendu
+                colorUnit.setIteration(old);
+                return false;
+            }
+            chosen = RenderStatistics.quantile(histogram, ESCAPE_QUANTILE);
+            if (chosen < probe || probe == AUTO_LIMIT || count == 0)
+                break;
+            probe = Math.min(AUTO_LIMIT, 4 * probe);
+        }
+        int cap = (int) Math.max(floor, Math.min(probe, chosen));
+        colorUnit.setIteration(cap);
+        tunedZoom = viewZoom;
+        tunedReal = viewExactReal;
+        tunedImg = viewExactImg;
+        if (cap == old)
+            return false;
+        lut = null;
+        depth.set(cap);
+        return true;
+    }
+
+    /**
+     * Calcule l'orbite de référence si la vue figée est un zoom profond
+     * La référence du rendu précédent est gardée si le centre n'a pas changé
+     */
+    private void prepareReference() {
+        if (!deepZoom || infinity || viewZoom < DEEP_ZOOM || !(colorUnit instanceof QuadraticCalculus)) {
+            reference = null;
+        } else if (reference == null || !reference.matches(colorUnit, viewExactReal, viewExactImg)) {
+            reference = new Perturbation((QuadraticCalculus) colorUnit, viewExactReal, viewExactImg, viewZoom);
+            // Une orbite interrompue par un arrêt est incomplète, elle sera recalculée
+            if (!colorUnit.getRunStatut())
+                reference = null;
+        }
+    }
+
+    /**
+     * Calcule le nombre d'itérations d'un point de la vue figée
+     *
+     * @param dReal    l'écart réel à l'origine
+     * @param dImg     l'écart imaginaire à l'origine
+     * @param fraction reçoit la partie fractionnaire lissée, peut être null
+     * @param at       la case de fraction à écrire
+     * @return le nombre d'itérations
+     */
+    private int iteratePoint(double dReal, double dImg, float[] fraction, int at) {
+        if (reference != null)
+            return reference.iterate(dReal, dImg, fraction, at);
+        return colorUnit.iterate(dReal + viewReal, dImg + viewImg, fraction, at);
+    }
+
+    /**
+     * Mode infini : calcule un point de la vue figée jusqu'à la limite atteinte par le rendu
+     * Un point dont l'orbite boucle ou qui reste indécis est compté dans l'ensemble
+     *
+     * @param dReal    l'écart réel à l'origine
+     * @param dImg     l'écart imaginaire à l'origine
+     * @param orbit    deux cases de travail
+     * @param fraction reçoit la partie fractionnaire lissée, peut être null
+     * @param at       la case de fraction à écrire
+     * @return le nombre d'itérations, Calculus.INFINITE_LIMIT pour un point de l'ensemble
+     */
+    private int iterateDeep(double dReal, double dImg, double[] orbit, float[] fraction, int at) {
+        int n = colorUnit.iterateInfinite(dReal + viewReal, dImg + viewImg, orbit, 0, 0, depth.get(), fraction, at);
+        return (n < 0) ? Calculus.INFINITE_LIMIT : n;
+    }
+
+    /**
+     * Version de rendu multithreads sans image JavaFX
+     *
+     * @return le buffer ARGB des pixels, ligne par ligne
+     */
+    public int[] renderBuffer() {
+        synchronized (renderLock) {
+            int[][] rects = prepareBuffer();
+            endBuffer(render(iterations, fractions, full, rects, new int[]{1},
+                    () -> edges = supersample(iterations, fractions, 0, height, 0, height), 0));
+            colorizeBuffer();
+        }
+        return pixels;
+    }
+
+    /**
+     * Calcule une bande de lignes de l'image sans garder l'image entière
+     * en mémoire
+     *
+     * @param from   la première ligne
+     * @param to     la ligne de fin exclue
+     * @param buffer le buffer ARGB d'au moins (to - from) * largeur cases
+     * @return false si un rendu est déjà en cours ou si la bande a été interrompue par stop(),
+     * le buffer n'est alors pas coloré
+     */
+    public boolean renderRows(int from, int to, int[] buffer) {
+        if (this.run || from < 0 || to > height || from >= to)
+            return false;
+        synchronized (renderLock) {
+            snapshotView();
+            if (samples == 1 && !smooth) {
+                if (!render(buffer, null, new Frame(0, from, width), new int[][]{{0, from, width, to}}, new int[]{1},
+                        null, 0))
+                    return false;
+                colorize(buffer, null, buffer, (to - from) * width);
+                return true;
+            }
+            // Les lignes voisines de la bande sont calculées pour repérer les bords de ses pixels
+            int lo = (samples == 1) ? from : Math.max(0, from - 1);
+            int hi = (samples == 1) ? to : Math.min(height, to + 1);
+            int[] halo = new int[(hi - lo) * width];
+            float[] fraction = smooth ? new float[halo.length] : null;
+            Edges[] found = new Edges[1];
+            if (!render(halo, fraction, new Frame(0, lo, width), new int[][]{{0, lo, width, hi}}, new int[]{1},
+                    () -> found[0] = supersample(halo, fraction, lo, hi - lo, from, to), 0))
+                return false;
+            int start = (from - lo) * width, length = (to - from) * width;
+            colorize(Arrays.copyOfRange(halo, start, start + length),
+                    smooth ? Arrays.copyOfRange(fraction, start, start + length) : null, buffer, length);
+            blend(found[0], buffer, from);
+        }
+        return true;
+    }
+
+    /**
+     * Calcule les nombres d'itérations d'un rectangle de l'image, sans les colorer
+     * Sert aux workers du rendu distribué : chacun calcule les tuiles qu'on lui envoie
+     *
+     * @param x0 la première colonne
+     * @param y0 la première ligne
+     * @param x1 la colonne de fin exclue
+     * @param y1 la ligne de fin exclue
+     * @return les itérations du rectangle, null si le rectangle est invalide ou si le rendu est interrompu
+     */
+    public IterationBuffer renderIterations(int x0, int y0, int x1, int y1) {
+        if (x0 < 0 || y0 < 0 || x1 > width || y1 > height || x0 >= x1 || y0 >= y1)
+            return null;
+        int w = x1 - x0;
+        int[] data = new int[(y1 - y0) * w];
+        synchronized (renderLock) {
+            snapshotView();
+            if (!render(data, null, new Frame(x0, y0, w), new int[][]{{x0, y0, x1, y1}}, new int[]{1}, null, 0))
+                return null;
+        }
+        return new IterationBuffer(w, y1 - y0, colorUnit.getIteration(), data);
+    }
+
+    /**
+     * Colore le buffer d'itérations complet, pixels suréchantillonnés compris
+     */
+    private void colorizeBuffer() {
+        colorize(iterations, fractions, pixels, pixels.length);
+        blend(edges, pixels, 0);
+    }
+
+    /**
+     * Anticrénelage adaptatif : repère les pixels des lignes [from, to) dont le nombre
+     * d'itérations s'écarte de plus de EDGE_GRADIENT de celui d'un voisin et les recalcule
+     * sur une grille de samples x samples sous-pixels. Seuls ces pixels, au bord des
+     * ensembles, sont suréchantillonnés ; ils sont répartis sur le pool.
+     * Doit être appelée pendant un rendu, après la dernière passe.
+     *
+     * @param src      le buffer d'itérations, la ligne offset est écrite à l'indice 0
+     * @param fraction le buffer des parties fractionnaires de src, null sans lissage
+     * @param offset   la première ligne présente dans src
+     * @param rows     le nombre de lignes présentes dans src
+     * @param from     la première ligne à traiter
+     * @param to       la ligne de fin exclue
+     * @return les pixels suréchantillonnés, null sans anticrénelage ou si le rendu est interrompu
+     */
+    private Edges supersample(int[] src, float[] fraction, int offset, int rows, int from, int to) {
+        if (samples == 1 || !this.run)
+            return null;
+        int[] index = new int[1024];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int row = (i - offset) * width;
+            for (int j = 0; j < width; j++) {
+                int n = src[row + j];
+                boolean edge = (j > 0 && Math.abs(n - src[row + j - 1]) > EDGE_GRADIENT)
+                        || (j < width - 1 && Math.abs(n - src[row + j + 1]) > EDGE_GRADIENT)
+                        || (i > offset && Math.abs(n - src[row + j - width]) > EDGE_GRADIENT)
+                        || (i < offset + rows - 1 && Math.abs(n - src[row + j + width]) > EDGE_GRADIENT);
+                if (edge) {
+                    if (count == index.length)
+                        index = Arrays.copyOf(index, count * 2);
+                    index[count++] = i * width + j;
+                }
+            }
+        }
+        Edges found = new Edges(Arrays.copyOf(index, count), count * samples * samples, fraction != null);
+        getPool(parallelism).invoke(new SampleTask(found, 0, count));
+        return this.run ? found : null;
+    }
+
+    /**
+     * Remplace la couleur des pixels suréchantillonnés par la moyenne
+     * des couleurs de leurs sous-pixels
+     *
+     * @param found  le résultat de supersample, peut être null
+     * @param dst    le buffer ARGB, la ligne offset est écrite à l'indice 0
+     * @param offset la première ligne présente dans dst
+     */
+    private void blend(Edges found, int[] dst, int offset) {
+        if (found == null)
+            return;
+        int k = samples * samples;
+        int[] argb = new int[found.values.length];
+        colorize(found.values, found.fractions, argb, argb.length);
+        for (int p = 0; p < found.index.length; p++) {
+            int r = 0, g = 0, b = 0;
+            for (int s = p * k; s < (p + 1) * k; s++) {
+                r += (argb[s] >> 16) & 0xFF;
+                g += (argb[s] >> 8) & 0xFF;
+                b += argb[s] & 0xFF;
+            }
+            dst[found.index[p] - offset * width] = 0xFF000000 | (r + k / 2) / k << 16
+                    | (g + k / 2) / k << 8 | (b + k / 2) / k;
+        }
+    }
+
+    /**
+     * Copie le buffer dans une image JavaFX
+     *
+     * @param image l'image de destination
+     * @return image
+     */
+    private WritableImage copyTo(WritableImage image) {
+        image.getPixelWriter().setPixels(0, 0, width, height,
+                PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return image;
     }
 
     /**
      * Version de rendu multithreads
+     * Le buffer est copié en une seule fois dans l'image
      *
      * @return la grille de pixels
      */
     public Image renderSceneMultiThreads() {
-        if (this.run)
-            return render;
-        this.run = true;
-        colorUnit.start();
-        for (ForkJoinTask task : createTask(Runtime.getRuntime().availableProcessors() - 1)) {
+        renderBuffer();
+        if (render == null)
+            render = new WritableImage(width, height);
+        return copyTo(render);
+    }
+
+    /**
+     * Version de rendu progressive : l'image est calculée au 1/8 de sa résolution,
+     * puis au 1/4, au 1/2 et enfin en entier. Chaque passe ne calcule que les pixels
+     * absents de la précédente et son résultat est publié dans une nouvelle image.
+     * Après un simple déplacement de l'origine, seules les bandes découvertes sont calculées.
+     * Un nouvel appel annule le rendu en cours.
+     *
+     * @param publisher reçoit l'image de chaque passe intermédiaire
+     * @return l'image finale, null si le rendu a été arrêté ou annulé par un rendu plus récent
+     */
+    public Image renderProgressive(Consumer<Image> publisher) {
+        int gen = generation.incrementAndGet();
+        stop();
+        return renderProgressive(gen, publisher, null);
+    }
+
+    /**
+     * Lance un rendu progressif en arrière-plan, comme renderProgressive
+     * Le rendu en cours est abandonné, le nouveau attend seulement
+     * que l'ancien ait relâché le buffer, soit quelques millisecondes.
+     *
+     * @param publisher reçoit l'image de chaque passe intermédiaire
+     * @param budget    la durée maximale du rendu en millisecondes, 0 pour aucune limite ;
+     *                  à l'échéance l'image de la dernière passe terminée est gardée
+     * @return le handle du rendu
+     */
+    public RenderHandle submit(Consumer<Image> publisher, long budget) {
+        int gen = generation.incrementAndGet();
+        stop();
+        RenderHandle handle = new RenderHandle(this, gen);
+        // Le rendu remplacé ne publie plus rien et son handle passe à CANCELLED
+        RenderHandle previous = submitted.getAndSet(handle);
+        if (previous != null)
+            previous.cancel();
+        if (budget > 0) {
+            ScheduledFuture<?> deadline = DEADLINES.schedule(handle::expire, budget, TimeUnit.MILLISECONDS);
+            handle.onComplete((h) -> deadline.cancel(false));
+        }
+        SUBMITTED.execute(() -> {
+            Image res = null;
             try {
-                task.join();
-            } catch (Exception e) {
-                System.out.println("Error with multithreading");
+                res = renderProgressive(gen, publisher, handle);
+            } finally {
+                handle.finish(res);
             }
+        });
+        return handle;
+    }
+
+    /**
+     * Rendu progressif d'un numéro donné
+     *
+     * @param gen       le numéro du rendu
+     * @param publisher reçoit l'image de chaque passe intermédiaire
+     * @param handle    le handle du rendu, null s'il n'a pas été soumis
+     * @return l'image finale, null si le rendu a été annulé ou n'est pas allé au bout
+     */
+    private Image renderProgressive(int gen, Consumer<Image> publisher, RenderHandle handle) {
+        synchronized (renderLock) {
+            if (gen != generation.get() || (handle != null && !handle.start()))
+                return null;
+            int[][] rects = prepareBuffer();
+            // Un simple décalage ne laisse que des bandes étroites, calculées en une passe
+            int[] steps = (rects.length == 1 && rects[0][2] - rects[0][0] == width
+                    && rects[0][3] - rects[0][1] == height) ? PROGRESSIVE_STEPS : new int[]{1};
+            int[] passes = {0};
+            boolean complete = render(iterations, fractions, full, rects, steps, () -> {
+                // Un handle arrêté avant le début du calcul n'a pas pu arrêter ce rendu
+                if (handle != null && handle.getStatus() != RenderHandle.Status.RUNNING)
+                    stop();
+                else if (++passes[0] == steps.length)
+                    edges = supersample(iterations, fractions, 0, height, 0, height);
+                else if (gen == generation.get()) {
+                    colorize(iterations, fractions, pixels, pixels.length);
+                    Image img = copyTo(new WritableImage(width, height));
+                    if (handle != null)
+                        handle.publish(img);
+                    publisher.accept(img);
+                }
+            }, gen);
+            endBuffer(complete);
+            if (!complete || gen != generation.get())
+                return null;
+            colorizeBuffer();
+            if (render == null)
+                render = new WritableImage(width, height);
+            return copyTo(render);
+        }
+    }
+
+    /**
+     * Change la palette et recolore la dernière image sans refaire le calcul
+     *
+     * @param p la nouvelle palette
+     * @return l'image recolorée, null si aucune image n'est disponible
+     * ou si un rendu est en cours (il utilisera la nouvelle palette)
+     */
+    public Image recolor(Palette p) {
+        this.palette = p;
+        if (this.run || iterations == null)
+            return null;
+        synchronized (renderLock) {
+            colorizeBuffer();
+            return copyTo(new WritableImage(width, height));
+        }
+    }
+
+    /**
+     * Renvoie la palette courante
+     *
+     * @return la palette
+     */
+    public Palette getPalette() {
+        return palette;
+    }
+
+    /**
+     * Renvoie une copie des nombres d'itérations du dernier rendu
+     *
+     * @return le buffer d'itérations, null si aucun rendu n'a été fait
+     */
+    public IterationBuffer getIterationBuffer() {
+        synchronized (renderLock) {
+            if (iterations == null)
+                return null;
+            return new IterationBuffer(width, height, colorUnit.getIteration(), iterations.clone());
         }
-        this.run = false;
-        colorUnit.stop();
-        return render;
     }
 
     /**
@@ -195,9 +1021,24 @@ public final class Grid {
     public static final class GridBuilder {
         private int x = 0;
         private int y = 0;
-        private Calculus unit = new Julia((xn) -> new Complex(0, 0).plus(xn.times(xn)), 100, 2.0);
+        private int iteration = 100;
+        private double limite = 2.0;
+        private double[] coeffs = {0.0, 0.0, 1.0};
+        private Complex constante = new Complex(0, 0);
         private boolean mandelbrot = false;
         private boolean infinity = false;
+        private int tileSize = 32;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private long cacheSize = 64L << 20;
+        private Palette palette = Palette.CLASSIQUE;
+        private boolean periodicity = true;
+        private RenderStrategy strategy = RenderStrategy.PIXEL;
+        private boolean lanes = true;
+        private boolean deepZoom = true;
+        private int samples = 1;
+        private boolean smooth = false;
+        private boolean instrumented = false;
+        private boolean autoIteration = false;
 
         /**
          * Constructeur privé
@@ -233,6 +1074,44 @@ public final class Grid {
                 return 4.0 * ((double) y / (double) x);
         }
 
+        /**
+         * Corrige la stratégie demandée : le suivi de bords suppose un ensemble connexe et plein,
+         * ce qui n'est garanti que pour Mandelbrot et pour les Julia quadratiques dont la constante
+         * est dans Mandelbrot. Ailleurs un bord uniforme peut entourer des morceaux de l'ensemble,
+         * le rendu se fait alors pixel par pixel
+         *
+         * @return la stratégie utilisée par la grille
+         */
+        private RenderStrategy correctStrategy() {
+            if (strategy != RenderStrategy.BORDER || mandelbrot)
+                return strategy;
+            if (PolynomialFactory.isQuadratic(coeffs)
+                    && Mandelbrot.contains(constante.getReal(), constante.getImg(), Calculus.INFINITE_LIMIT))
+                return strategy;
+            return RenderStrategy.PIXEL;
+        }
+
+        /**
+         * Choisit l'unité de calcul la plus adaptée à la fonction :
+         * les fonctions quadratiques simples et Mandelbrot utilisent
+         * le moteur sur doubles primitifs, les autres polynomes sont compilés
+         * sous forme de Horner
+         *
+         * @return l'unité de calculs
+         */
+        private Calculus makeUnit() {
+            Calculus unit;
+            if (mandelbrot)
+                unit = new QuadraticCalculus(iteration);
+            else if (PolynomialFactory.isQuadratic(coeffs))
+                unit = new QuadraticCalculus(constante, iteration, limite);
+            else
+                unit = new PolynomialCalculus(PolynomialFactory.compile(coeffs, constante), iteration, limite);
+            unit.setPeriodicity(periodicity);
+            unit.setInstrumented(instrumented);
+            return unit;
+        }
+
         /**
          * Définit le nombre d'itérations de l'unité de calculs
          *
@@ -240,13 +1119,8 @@ public final class Grid {
          * @return this
          */
         public GridBuilder iteration(int iteration) {
-            if (iteration > 0) {
-                if (mandelbrot) {
-                    unit = new Mandelbrot(iteration);
-                } else {
-                    unit = new Julia(unit.getFunction(), iteration, unit.getLimite());
-                }
-            }
+            if (iteration > 0)
+                this.iteration = iteration;
             return this;
         }
 
@@ -260,10 +1134,8 @@ public final class Grid {
          */
         public GridBuilder function(double[] coeffs, double real, double img) {
             mandelbrot = false;
-            unit = new Julia(
-                    PolynomialFactory.makeFunction(coeffs, new Complex(real, img)),
-                    unit.getIteration(),
-                    unit.getLimite());
+            this.coeffs = coeffs.clone();
+            this.constante = new Complex(real, img);
             return this;
         }
 
@@ -274,7 +1146,6 @@ public final class Grid {
          */
         public GridBuilder mandelbrot() {
             mandelbrot = true;
-            unit = new Mandelbrot(unit.getIteration());
             return this;
         }
 
@@ -303,6 +1174,162 @@ public final class Grid {
             return this;
         }
 
+        /**
+         * Définit la taille des tuiles de calcul
+         *
+         * @param tileSize le côté d'une tuile en pixels, arrondi au multiple de 8 supérieur
+         * @return this
+         */
+        public GridBuilder tileSize(int tileSize) {
+            if (tileSize > 0)
+                this.tileSize = tileSize;
+            return this;
+        }
+
+        /**
+         * Définit le nombre de workers du pool de calcul
+         *
+         * @param parallelism le nombre de workers
+         * @return this
+         */
+        public GridBuilder parallelism(int parallelism) {
+            if (parallelism > 0)
+                this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Définit la taille maximale du cache des tuiles calculées
+         *
+         * @param bytes la taille en octets, 0 pour désactiver le cache
+         * @return this
+         */
+        public GridBuilder cacheSize(long bytes) {
+            if (bytes >= 0)
+                this.cacheSize = bytes;
+            return this;
+        }
+
+        /**
+         * Définit la palette de couleurs
+         *
+         * @param palette la palette
+         * @return this
+         */
+        public GridBuilder palette(Palette palette) {
+            if (palette != null)
+                this.palette = palette;
+            return this;
+        }
+
+        /**
+         * Active ou désactive les raccourcis de calcul des points intérieurs :
+         * rejet de la cardioïde et du disque de période 2 pour Mandelbrot,
+         * détection des cycles pour tous les ensembles.
+         * Désactivés, le calcul est exact et itère jusqu'au maximum
+         *
+         * @param periodicity true pour activer les raccourcis (par défaut)
+         * @return this
+         */
+        public GridBuilder periodicity(boolean periodicity) {
+            this.periodicity = periodicity;
+            return this;
+        }
+
+        /**
+         * Définit la stratégie de calcul des tuiles
+         *
+         * @param strategy la stratégie, PIXEL par défaut
+         * @return this
+         */
+        public GridBuilder strategy(RenderStrategy strategy) {
+            if (strategy != null)
+                this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * Active ou désactive le calcul des lignes par paquets de points :
+         * les unités quadratiques itèrent alors 4 points à la fois
+         *
+         * @param lanes true pour calculer par paquets (par défaut), false pour point par point
+         * @return this
+         */
+        public GridBuilder lanes(boolean lanes) {
+            this.lanes = lanes;
+            return this;
+        }
+
+        /**
+         * Active ou désactive le zoom profond : au-delà d'un zoom de 1e10, les unités
+         * quadratiques calculent une orbite de référence en précision arbitraire
+         * et chaque pixel n'itère que son écart à cette orbite
+         *
+         * @param deepZoom true pour activer le zoom profond (par défaut)
+         * @return this
+         */
+        public GridBuilder deepZoom(boolean deepZoom) {
+            this.deepZoom = deepZoom;
+            return this;
+        }
+
+        /**
+         * Active l'anticrénelage adaptatif : après la dernière passe, seuls les pixels
+         * dont le nombre d'itérations tranche avec celui d'un voisin sont recalculés
+         * sur une grille de samples x samples sous-pixels et prennent la couleur moyenne
+         *
+         * @param samples le côté de la grille de sous-pixels, 1 pour désactiver (par défaut)
+         * @return this
+         */
+        public GridBuilder supersampling(int samples) {
+            if (samples >= 1)
+                this.samples = samples;
+            return this;
+        }
+
+        /**
+         * Active la coloration continue : les unités de calcul donnent en plus du nombre
+         * d'itérations sa partie fractionnaire lissée, tirée du module du dernier point
+         * de l'orbite, sans calcul supplémentaire. Elle est gardée dans un buffer de floats
+         * et la palette mélange les couleurs de deux itérations voisines, sans bandes.
+         * Le cache de tuiles est alors désactivé
+         *
+         * @param smooth true pour activer la coloration continue, false par défaut
+         * @return this
+         */
+        public GridBuilder smooth(boolean smooth) {
+            this.smooth = smooth;
+            return this;
+        }
+
+        /**
+         * Active les statistiques détaillées des rendus : itérations exécutées, débit,
+         * temps par tuile et par worker, histogramme des itérations, pixels restés à la limite
+         * et pixels annulés. Le comptage coûte un compteur partagé par point calculé
+         * et un parcours de l'image à la fin du rendu
+         *
+         * @param instrumented true pour activer les statistiques détaillées, false par défaut
+         * @return this
+         */
+        public GridBuilder instrument(boolean instrumented) {
+            this.instrumented = instrumented;
+            return this;
+        }
+
+        /**
+         * Active le réglage automatique de la limite d'itérations : avant le premier rendu
+         * de chaque vue, une sonde basse résolution choisit la limite d'après la distribution
+         * des itérations de sortie et le zoom. La limite de iteration sert de plancher.
+         * La limite choisie est donnée par Grid.getMaxIteration. Sans effet en mode infini
+         *
+         * @param autoIteration true pour activer le réglage, false par défaut
+         * @return this
+         */
+        public GridBuilder autoIteration(boolean autoIteration) {
+            this.autoIteration = autoIteration;
+            return this;
+        }
+
         /**
          * Calcule l'objet Grid associé
          *
@@ -315,34 +1342,465 @@ public final class Grid {
     }
 
     /**
-     * Classe de gestion des taches de calculs multithreads
+     * Tâche de calcul d'un rectangle de l'image
+     * Le rectangle est coupé en deux tant qu'il dépasse la taille d'une tuile,
+     * les workers inoccupés volent les moitiés restantes.
+     * Avec la stratégie BORDER, la dernière passe ne calcule que le bord du rectangle :
+     * un bord uniforme est rempli sans calcul, sinon les deux lignes de coupe sont
+     * calculées et chaque moitié, dont le bord est alors connu, est traitée de la même façon
      */
-    private class GridThread extends RecursiveAction {
-        int begin, end;
+    private class TileTask extends RecursiveAction {
+        private final int[] target; // Buffer de sortie
+        private final float[] fraction; // Parties fractionnaires lissées, indexées comme target, null sans lissage
+        private final Frame frame; // Place du buffer dans l'image
+        private final int step; // Pas entre deux pixels calculés
+        private final int previous; // Pas de la passe précédente, 0 si aucune
+        private final boolean bordered; // Le bord du rectangle est déjà calculé
+        private final int x0, y0, x1, y1;
+        private long evaluated; // Nombre de pixels itérés par la tâche
 
-        private GridThread(int begin, int end) {
-            this.begin = begin;
-            this.end = end;
+        private TileTask(int[] target, float[] fraction, Frame frame, int step, int previous, boolean bordered,
+                         int x0, int y0, int x1, int y1) {
+            this.target = target;
+            this.fraction = fraction;
+            this.frame = frame;
+            this.step = step;
+            this.previous = previous;
+            this.bordered = bordered;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
         }
 
-        private void writeColor(PixelWriter writer, int j, int i, Color c) {
-            synchronized (Grid.this) {
-                writer.setColor(j, i, c);
+        /**
+         * Remplit le bloc de step x step pixels commençant en (j, i) avec la valeur du pixel (j, i)
+         */
+        private void fill(int i, int j) {
+            int index = frame.index(i, j);
+            int iEnd = Math.min(i + step, y1), jEnd = Math.min(j + step, x1);
+            for (int k = i; k < iEnd; k++) {
+                Arrays.fill(target, frame.index(k, j), frame.index(k, jEnd), target[index]);
+                if (fraction != null)
+                    Arrays.fill(fraction, frame.index(k, j), frame.index(k, jEnd), fraction[index]);
             }
         }
 
         @Override
         protected void compute() {
-            PixelWriter writer = ((WritableImage) render).getPixelWriter();
-            for (int i = begin; Grid.this.run && i < end; i++) {
-                for (int j = 0; Grid.this.run && j < render.getWidth(); j++) {
-                    Complex tmp = new Complex(calculateXCoordinate(j), calculateYCoordinate(i))
-                            .plus(origin);
-                    Color c = (infinity) ? colorUnit.getInfiniteColorFrom(tmp) : colorUnit.getColorFrom(tmp);
-                    writeColor(writer, j, i, c);
+            if (!Grid.this.run)
+                return;
+            boolean tracing = strategy == RenderStrategy.BORDER && step == 1;
+            int w = x1 - x0, h = y1 - y0;
+            int cx0 = x0 / tileSize, cx1 = (x1 - 1) / tileSize;
+            int cy0 = y0 / tileSize, cy1 = (y1 - 1) / tileSize;
+            if (cx1 > cx0 || cy1 > cy0) {
+                if (tracing && !bordered)
+                    border(x0, y0, x1, y1);
+                if (tracing && fillIfUniform(x0, y0, x1, y1)) {
+                    evaluations.add(evaluated);
+                    areaDone.add((long) w * h);
+                    tilesDone.increment();
+                    return;
+                }
+                // Coupe sur le quadrillage fixe des tuiles : les tuiles sont les mêmes
+                // à chaque passe et d'un rendu à l'autre
+                if (cx1 - cx0 >= cy1 - cy0) {
+                    int mid = (cx0 + (cx1 - cx0 + 1) / 2) * tileSize;
+                    if (tracing)
+                        cut(mid, y0, mid, y1, true);
+                    evaluations.add(evaluated);
+                    invokeAll(new TileTask(target, fraction, frame, step, previous, tracing, x0, y0, mid, y1),
+                            new TileTask(target, fraction, frame, step, previous, tracing, mid, y0, x1, y1));
+                } else {
+                    int mid = (cy0 + (cy1 - cy0 + 1) / 2) * tileSize;
+                    if (tracing)
+                        cut(x0, mid, x1, mid, false);
+                    evaluations.add(evaluated);
+                    invokeAll(new TileTask(target, fraction, frame, step, previous, tracing, x0, y0, x1, mid),
+                            new TileTask(target, fraction, frame, step, previous, tracing, x0, mid, x1, y1));
                 }
+                return;
+            }
+            long beg = System.nanoTime();
+            TileCache.Key key = (cache == null) ? null
+                    : new TileCache.Key(colorUnit, viewZoom, viewExactReal, viewExactImg, x0, y0, x1, y1);
+            int[] cached = (key == null) ? null : cache.get(key);
+            if (cached != null) {
+                for (int i = y0; i < y1; i++)
+                    System.arraycopy(cached, (i - y0) * w, target, frame.index(i, x0), w);
+            } else {
+                if (tracing) {
+                    if (!bordered)
+                        border(x0, y0, x1, y1);
+                    trace(x0, y0, x1, y1);
+                } else {
+                    computeTile();
+                }
+                if (key != null && step == 1 && Grid.this.run) {
+                    int[] data = new int[w * h];
+                    for (int i = y0; i < y1; i++)
+                        System.arraycopy(target, frame.index(i, x0), data, (i - y0) * w, w);
+                    cache.put(key, data);
+                }
+            }
+            evaluations.add(evaluated);
+            countBusy(System.nanoTime() - beg);
+            areaDone.add((long) w * h);
+            tilesDone.increment();
+        }
+
+        /**
+         * Calcule les pixels de la tuile pour la passe courante
+         */
+        private void computeTile() {
+            if (lanes && step == 1 && reference == null) {
+                computeRows();
+                return;
+            }
+            for (int i = y0; Grid.this.run && i < y1; i += step) {
+                double img = calculateYCoordinate(i);
+                for (int j = x0; Grid.this.run && j < x1; j += step) {
+                    if (previous != 0 && i % previous == 0 && j % previous == 0)
+                        continue; // Déjà calculé à la passe précédente
+                    int index = frame.index(i, j);
+                    target[index] = iteratePoint(calculateXCoordinate(j), img, fraction, index);
+                    evaluated++;
+                    if (step > 1)
+                        fill(i, j);
+                }
+            }
+        }
+
+        /**
+         * Calcule les pixels de la tuile ligne par ligne avec Calculus.iterateRow
+         * Les pixels déjà calculés à la passe précédente sont retirés de chaque ligne
+         */
+        private void computeRows() {
+            int w = x1 - x0;
+            double[] real = new double[w];
+            int[] columns = new int[w];
+            int[] out = new int[w];
+            float[] smoothed = (fraction == null) ? null : new float[w];
+            for (int i = y0; Grid.this.run && i < y1; i++) {
+                int count = 0;
+                for (int j = x0; j < x1; j++) {
+                    if (previous != 0 && i % previous == 0 && j % previous == 0)
+                        continue; // Déjà calculé à la passe précédente
+                    columns[count] = j;
+                    real[count++] = calculateXCoordinate(j) + viewReal;
+                }
+                colorUnit.iterateRow(real, calculateYCoordinate(i) + viewImg, out, smoothed, count);
+                for (int k = 0; k < count; k++) {
+                    target[frame.index(i, columns[k])] = out[k];
+                    if (smoothed != null)
+                        fraction[frame.index(i, columns[k])] = smoothed[k];
+                }
+                evaluated += count;
+            }
+        }
+
+        /**
+         * Calcule un pixel et l'écrit dans le buffer, sauf s'il l'a été à la passe précédente
+         */
+        private int evaluate(int i, int j) {
+            int index = frame.index(i, j);
+            if (previous != 0 && i % previous == 0 && j % previous == 0)
+                return target[index];
+            int n = iteratePoint(calculateXCoordinate(j), calculateYCoordinate(i), fraction, index);
+            target[index] = n;
+            evaluated++;
+            return n;
+        }
+
+        /**
+         * Calcule le bord d'un rectangle
+         */
+        private void border(int x0, int y0, int x1, int y1) {
+            for (int j = x0; j < x1; j++) {
+                evaluate(y0, j);
+                if (y1 - 1 > y0)
+                    evaluate(y1 - 1, j);
+            }
+            for (int i = y0 + 1; i < y1 - 1; i++) {
+                evaluate(i, x0);
+                if (x1 - 1 > x0)
+                    evaluate(i, x1 - 1);
+            }
+        }
+
+        /**
+         * Calcule les deux lignes de part et d'autre d'une coupe, hors bord du rectangle
+         * (x0, y0) - (x1, y1) est la coupe, vertical indique une coupe en colonnes
+         */
+        private void cut(int x0, int y0, int x1, int y1, boolean vertical) {
+            if (vertical) {
+                for (int i = y0 + 1; i < y1 - 1; i++) {
+                    evaluate(i, x0 - 1);
+                    evaluate(i, x0);
+                }
+            } else {
+                for (int j = x0 + 1; j < x1 - 1; j++) {
+                    evaluate(y0 - 1, j);
+                    evaluate(y0, j);
+                }
+            }
+        }
+
+        /**
+         * Remplit l'intérieur d'un rectangle dont le bord est uniforme
+         * Un bord extérieur uniforme peut entourer tout l'ensemble, connexe et contenant 0 :
+         * ce cas n'est rempli que si le rectangle ne contient pas l'origine du plan.
+         * Avec le lissage, les parties fractionnaires varient à l'intérieur d'une bande :
+         * seul l'intérieur de l'ensemble est alors rempli
+         *
+         * @return true si le rectangle a été rempli
+         */
+        private boolean fillIfUniform(int x0, int y0, int x1, int y1) {
+            int n = target[frame.index(y0, x0)];
+            for (int j = x0; j < x1; j++)
+                if (target[frame.index(y0, j)] != n || target[frame.index(y1 - 1, j)] != n)
+                    return false;
+            for (int i = y0 + 1; i < y1 - 1; i++)
+                if (target[frame.index(i, x0)] != n || target[frame.index(i, x1 - 1)] != n)
+                    return false;
+            if (fraction != null && n < colorUnit.getIteration())
+                return false;
+            if (n < colorUnit.getIteration()
+                    && calculateXCoordinate(x0) + viewReal <= 0 && calculateXCoordinate(x1 - 1) + viewReal >= 0
+                    && calculateYCoordinate(y1 - 1) + viewImg <= 0 && calculateYCoordinate(y0) + viewImg >= 0)
+                return false;
+            for (int i = y0 + 1; i < y1 - 1; i++) {
+                Arrays.fill(target, frame.index(i, x0 + 1), frame.index(i, x1 - 1), n);
+                if (fraction != null)
+                    Arrays.fill(fraction, frame.index(i, x0 + 1), frame.index(i, x1 - 1), 0);
+            }
+            return true;
+        }
+
+        /**
+         * Suivi de bords dans une tuile dont le bord est calculé
+         */
+        private void trace(int x0, int y0, int x1, int y1) {
+            if (!Grid.this.run || x1 - x0 <= 2 || y1 - y0 <= 2 || fillIfUniform(x0, y0, x1, y1))
+                return;
+            if (x1 - x0 <= 4 || y1 - y0 <= 4) {
+                for (int i = y0 + 1; i < y1 - 1; i++)
+                    for (int j = x0 + 1; j < x1 - 1; j++)
+                        evaluate(i, j);
+                return;
             }
+            if (x1 - x0 >= y1 - y0) {
+                int mid = (x0 + x1) / 2;
+                cut(mid, y0, mid, y1, true);
+                trace(x0, y0, mid, y1);
+                trace(mid, y0, x1, y1);
+            } else {
+                int mid = (y0 + y1) / 2;
+                cut(x0, mid, x1, mid, false);
+                trace(x0, y0, x1, mid);
+                trace(x0, mid, x1, y1);
+            }
+        }
+    }
+
+    /**
+     * Tâche du mode infini, après la dernière passe : les pixels d'une tuile restés au nombre
+     * d'itérations de base (sortis à la limite, ou dont l'orbite a bouclé) sont repris depuis
+     * leur orbite avec une limite doublée à chaque tour. Une tuile s'arrête quand tous ses pixels
+     * sont décidés (sortis, ou orbite bouclée) ou à Calculus.INFINITE_LIMIT ; ses pixels encore
+     * indécis sont alors comptés dans l'ensemble.
+     */
+    private class RefineTask extends RecursiveAction {
+        private final int[] target; // Buffer de sortie
+        private final float[] fraction; // Parties fractionnaires lissées, indexées comme target, null sans lissage
+        private final Frame frame; // Place du buffer dans l'image
+        private final int x0, y0, x1, y1;
+
+        private RefineTask(int[] target, float[] fraction, Frame frame, int x0, int y0, int x1, int y1) {
+            this.target = target;
+            this.fraction = fraction;
+            this.frame = frame;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+
+        @Override
+        protected void compute() {
+            if (!Grid.this.run)
+                return;
+            int cx0 = x0 / tileSize, cx1 = (x1 - 1) / tileSize;
+            int cy0 = y0 / tileSize, cy1 = (y1 - 1) / tileSize;
+            if (cx1 - cx0 >= cy1 - cy0 && cx1 > cx0) {
+                int mid = (cx0 + (cx1 - cx0 + 1) / 2) * tileSize;
+                invokeAll(new RefineTask(target, fraction, frame, x0, y0, mid, y1),
+                        new RefineTask(target, fraction, frame, mid, y0, x1, y1));
+                return;
+            }
+            if (cy1 > cy0) {
+                int mid = (cy0 + (cy1 - cy0 + 1) / 2) * tileSize;
+                invokeAll(new RefineTask(target, fraction, frame, x0, y0, x1, mid),
+                        new RefineTask(target, fraction, frame, x0, mid, x1, y1));
+                return;
+            }
+            long beg = System.nanoTime();
+            int base = colorUnit.getIteration();
+            int[] undecided = new int[(x1 - x0) * (y1 - y0)]; // Indices des pixels indécis dans target
+            int count = 0;
+            for (int i = y0; i < y1; i++)
+                for (int j = x0; j < x1; j++)
+                    if (target[frame.index(i, j)] == base)
+                        undecided[count++] = frame.index(i, j);
+            double[] orbit = new double[2 * count];
+            long evaluated = 0;
+            int from = 0, cap = base;
+            // Le premier tour repart du pixel : les passes n'ont pas gardé les orbites
+            while (count > 0 && Grid.this.run && cap < Calculus.INFINITE_LIMIT) {
+                cap = (int) Math.min(Calculus.INFINITE_LIMIT, 2L * cap);
+                int kept = 0;
+                for (int k = 0; k < count && Grid.this.run; k++) {
+                    int index = undecided[k];
+                    int n = colorUnit.iterateInfinite(calculateXCoordinate(frame.column(index)) + viewReal,
+                            calculateYCoordinate(frame.row(index)) + viewImg, orbit, k, from, cap, fraction, index);
+                    if (n == Calculus.UNDECIDED) {
+                        undecided[kept] = index;
+                        orbit[2 * kept] = orbit[2 * k];
+                        orbit[2 * kept + 1] = orbit[2 * k + 1];
+                        kept++;
+                    } else {
+                        target[index] = (n == Calculus.CONVERGED) ? Calculus.INFINITE_LIMIT : n;
+                    }
+                }
+                evaluated += count;
+                count = kept;
+                from = cap;
+                depth.accumulateAndGet(cap, Math::max);
+            }
+            if (Grid.this.run)
+                for (int k = 0; k < count; k++)
+                    target[undecided[k]] = Calculus.INFINITE_LIMIT;
+            evaluations.add(evaluated);
+            countBusy(System.nanoTime() - beg);
+            areaDone.add((long) (x1 - x0) * (y1 - y0));
+        }
+    }
+
+    /**
+     * Tâche de suréchantillonnage d'une liste de pixels
+     * La liste est coupée en deux tant qu'elle dépasse SAMPLE_BATCH pixels
+     */
+    private class SampleTask extends RecursiveAction {
+        private final Edges edges;
+        private final int from, to;
+
+        private SampleTask(Edges edges, int from, int to) {
+            this.edges = edges;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (!Grid.this.run)
+                return;
+            if (to - from > SAMPLE_BATCH) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SampleTask(edges, from, mid), new SampleTask(edges, mid, to));
+                return;
+            }
+            int k = samples * samples;
+            int[] index = edges.index;
+            boolean rows = lanes && !infinity && reference == null;
+            double[] real = new double[(to - from) * samples];
+            int[] out = new int[real.length];
+            float[] smoothed = (edges.fractions == null) ? null : new float[real.length];
+            double[] orbit = new double[2];
+            // Les sous-pixels d'une même sous-ligne de l'image partagent leur partie imaginaire :
+            // ils sont itérés ensemble par iterateRow
+            for (int p = from, q; p < to && Grid.this.run; p = q) {
+                int i = index[p] / width;
+                for (q = p; q < to && index[q] / width == i; q++) ;
+                for (int sy = 0; sy < samples; sy++) {
+                    double img = calculateYCoordinate(i + (sy + 0.5) / samples - 0.5);
+                    int count = 0;
+                    for (int r = p; r < q; r++)
+                        for (int sx = 0; sx < samples; sx++)
+                            real[count++] = calculateXCoordinate(index[r] % width + (sx + 0.5) / samples - 0.5);
+                    if (rows) {
+                        for (int c = 0; c < count; c++)
+                            real[c] += viewReal;
+                        colorUnit.iterateRow(real, img + viewImg, out, smoothed, count);
+                    } else if (infinity) {
+                        for (int c = 0; c < count; c++)
+                            out[c] = iterateDeep(real[c], img, orbit, smoothed, c);
+                    } else {
+                        for (int c = 0; c < count; c++)
+                            out[c] = iteratePoint(real[c], img, smoothed, c);
+                    }
+                    for (int c = 0; c < count; c++) {
+                        int at = (p + c / samples) * k + sy * samples + c % samples;
+                        edges.values[at] = out[c];
+                        if (smoothed != null)
+                            edges.fractions[at] = smoothed[c];
+                    }
+                }
+            }
+            evaluations.add((long) (to - from) * k);
+        }
+    }
+
+    /**
+     * Place d'un buffer d'itérations dans l'image : le buffer commence au pixel (x, y)
+     * et chacune de ses lignes occupe stride cases
+     */
+    private static final class Frame {
+        private final int x; // Première colonne présente dans le buffer
+        private final int y; // Première ligne présente dans le buffer
+        private final int stride; // Nombre de cases d'une ligne du buffer
+
+        private Frame(int x, int y, int stride) {
+            this.x = x;
+            this.y = y;
+            this.stride = stride;
+        }
+
+        /**
+         * Renvoie l'indice dans le buffer du pixel de la ligne i et de la colonne j de l'image
+         */
+        private int index(int i, int j) {
+            return (i - y) * stride + j - x;
+        }
+
+        /**
+         * Renvoie la ligne de l'image du pixel d'indice index dans le buffer
+         */
+        private int row(int index) {
+            return index / stride + y;
+        }
+
+        /**
+         * Renvoie la colonne de l'image du pixel d'indice index dans le buffer
+         */
+        private int column(int index) {
+            return index % stride + x;
+        }
+    }
+
+    /**
+     * Pixels suréchantillonnés et nombres d'itérations de leurs sous-pixels
+     */
+    private static final class Edges {
+        private final int[] index; // Indices des pixels dans l'image
+        private final int[] values; // Itérations des sous-pixels, samples^2 par pixel
+        private final float[] fractions; // Parties fractionnaires des sous-pixels, null sans lissage
+
+        private Edges(int[] index, int count, boolean smooth) {
+            this.index = index;
+            this.values = new int[count];
+            this.fractions = smooth ? new float[count] : null;
         }
     }
 
-}
\ No newline at end of file
+}
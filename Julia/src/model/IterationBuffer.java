@@ -0,0 +1,274 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Nombres d'itérations bruts d'une image, indépendants de la palette
+ * Ils peuvent être sauvegardés puis recolorés sans refaire le calcul
+ *
+ * @author marais bello
+ */
+public final class IterationBuffer {
+
+    private static final int MAGIC = 0x4A495452; // "JITR"
+
+    private final int width;
+    private final int height;
+    private final int maxIteration;
+    private final int[] data;
+
+    /**
+     * Constructeur
+     *
+     * @param width        la largeur de l'image
+     * @param height       la hauteur de l'image
+     * @param maxIteration le nombre d'itérations maximum du calcul
+     * @param data         les nombres d'itérations, ligne par ligne
+     */
+    IterationBuffer(int width, int height, int maxIteration, int[] data) {
+        this.width = width;
+        this.height = height;
+        this.maxIteration = maxIteration;
+        this.data = data;
+    }
+
+    /**
+     * Constructeur d'un buffer vide, à remplir tuile par tuile avec paste
+     *
+     * @param width        la largeur de l'image
+     * @param height       la hauteur de l'image
+     * @param maxIteration le nombre d'itérations maximum du calcul
+     */
+    public IterationBuffer(int width, int height, int maxIteration) {
+        this(width, height, maxIteration, new int[width * height]);
+    }
+
+    /**
+     * Getter de la largeur
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Getter de la hauteur
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Getter du nombre d'itérations maximum
+     */
+    public int getMaxIteration() {
+        return maxIteration;
+    }
+
+    /**
+     * Getter des nombres d'itérations, sans copie
+     */
+    int[] getData() {
+        return data;
+    }
+
+    /**
+     * Colore les nombres d'itérations avec une palette
+     *
+     * @param palette la palette
+     * @return le buffer ARGB, ligne par ligne
+     */
+    public int[] toArgb(Palette palette) {
+        int[] argb = new int[data.length];
+        colorize(palette, palette.table(maxIteration), maxIteration, maxIteration, data, null, argb, data.length);
+        return argb;
+    }
+
+    /**
+     * Colore des nombres d'itérations grâce à la table précalculée d'une palette
+     *
+     * @param palette  la palette, pour les valeurs hors de la table
+     * @param lut      la table de la palette
+     * @param max      le nombre d'itérations maximum
+     * @param interior le nombre d'itérations des points de l'ensemble : max, ou INFINITE_LIMIT en mode
+     *                 infini où les points sortis entre les deux sont colorés par Palette.beyond
+     * @param src      les nombres d'itérations
+     * @param dst      le buffer ARGB de sortie, peut être src
+     * @param length   le nombre de cases à colorer
+     */
+    static void colorize(Palette palette, int[] lut, int max, int interior, int[] src, int[] dst, int length) {
+        for (int k = 0; k < length; k++)
+            dst[k] = color(palette, lut, max, interior, src[k]);
+    }
+
+    /**
+     * Couleur d'un nombre d'itérations
+     *
+     * @return la couleur au format ARGB 32 bits
+     */
+    private static int color(Palette palette, int[] lut, int max, int interior, int n) {
+        if (n < lut.length)
+            return lut[n];
+        return (n < interior) ? palette.beyond(n, max) : palette.color(n, max);
+    }
+
+    /**
+     * Colore des nombres d'itérations lissés : la couleur d'un pixel sorti après n itérations
+     * est mélangée à celle de n + 1 selon sa partie fractionnaire, ce qui efface les bandes
+     *
+     * @param palette  la palette, pour les valeurs hors de la table
+     * @param lut      la table de la palette
+     * @param max      le nombre d'itérations maximum
+     * @param interior le nombre d'itérations des points de l'ensemble, voir colorize sans lissage
+     * @param src      les nombres d'itérations
+     * @param fraction les parties fractionnaires, null pour ne pas lisser
+     * @param dst      le buffer ARGB de sortie, peut être src
+     * @param length   le nombre de cases à colorer
+     */
+    static void colorize(Palette palette, int[] lut, int max, int interior, int[] src, float[] fraction, int[] dst,
+                         int length) {
+        if (fraction == null) {
+            colorize(palette, lut, max, interior, src, dst, length);
+            return;
+        }
+        for (int k = 0; k < length; k++) {
+            int n = src[k];
+            int c = color(palette, lut, max, interior, n);
+            int w = (int) (fraction[k] * 256); // Poids de la couleur suivante sur 8 bits
+            // L'intérieur n'est pas mélangé aux points sortis
+            if (w > 0 && n + 1 < max) {
+                int d = (n + 1 < lut.length) ? lut[n + 1] : palette.color(n + 1, max);
+                c = 0xFF000000 | mix(c >> 16, d >> 16, w) << 16 | mix(c >> 8, d >> 8, w) << 8 | mix(c, d, w);
+            }
+            dst[k] = c;
+        }
+    }
+
+    /**
+     * Mélange deux canaux de couleur
+     *
+     * @param a le premier canal, dans les 8 bits de poids faible
+     * @param b le second canal, dans les 8 bits de poids faible
+     * @param w le poids de b, entre 0 et 256
+     * @return le canal mélangé
+     */
+    private static int mix(int a, int b, int w) {
+        a &= 0xFF;
+        b &= 0xFF;
+        return a + (((b - a) * w) >> 8);
+    }
+
+    /**
+     * Copie une tuile dans ce buffer
+     *
+     * @param tile la tuile
+     * @param x    la colonne de son coin haut gauche
+     * @param y    la ligne de son coin haut gauche
+     */
+    public void paste(IterationBuffer tile, int x, int y) {
+        if (x < 0 || y < 0 || x + tile.width > width || y + tile.height > height)
+            throw new IllegalArgumentException("Tuile hors de l'image");
+        for (int i = 0; i < tile.height; i++)
+            System.arraycopy(tile.data, i * tile.width, data, (y + i) * width + x, tile.width);
+    }
+
+    /**
+     * Compresse les nombres d'itérations pour les envoyer sur le réseau
+     * Les pixels voisins ont souvent le même nombre d'itérations, chaque valeur est
+     * remplacée par son écart à la précédente avant la compression
+     *
+     * @return les octets compressés
+     * @throws IOException si la compression échoue
+     */
+    public byte[] pack() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes,
+                new Deflater(Deflater.BEST_SPEED), 1 << 16))) {
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(maxIteration);
+            int previous = 0;
+            for (int n : data) {
+                out.writeInt(n - previous);
+                previous = n;
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Décompresse des nombres d'itérations compressés par pack
+     *
+     * @param packed les octets compressés
+     * @return le buffer d'itérations
+     * @throws IOException si les octets ne sont pas valides
+     */
+    public static IterationBuffer unpack(byte[] packed) throws IOException {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(packed), new Inflater(), 1 << 16))) {
+            int width = in.readInt(), height = in.readInt(), max = in.readInt();
+            if (width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE)
+                throw new IOException("Tuile invalide");
+            int[] data = new int[width * height];
+            int previous = 0;
+            for (int k = 0; k < data.length; k++) {
+                previous += in.readInt();
+                data[k] = previous;
+            }
+            return new IterationBuffer(width, height, max, data);
+        }
+    }
+
+    /**
+     * Sauvegarde les nombres d'itérations dans un fichier compressé
+     *
+     * @param file le fichier
+     * @throws IOException si l'écriture échoue
+     */
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(maxIteration);
+            for (int n : data)
+                out.writeInt(n);
+        }
+    }
+
+    /**
+     * Charge des nombres d'itérations sauvegardés par save
+     *
+     * @param file le fichier
+     * @return le buffer d'itérations
+     * @throws IOException si la lecture échoue ou si le fichier n'est pas valide
+     */
+    public static IterationBuffer load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Fichier d'itérations invalide : " + file);
+            int width = in.readInt(), height = in.readInt(), max = in.readInt();
+            int[] data = new int[width * height];
+            for (int k = 0; k < data.length; k++)
+                data[k] = in.readInt();
+            return new IterationBuffer(width, height, max, data);
+        }
+    }
+
+}
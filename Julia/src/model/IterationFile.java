@@ -0,0 +1,271 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Nombres d'itérations d'une image rangés dans un fichier projeté en mémoire,
+ * pour les images plus grandes que le tas. L'image est découpée en bandes de lignes
+ * écrites une à une ; seule la bande en cours d'écriture ou de lecture est projetée.
+ * Une table d'avancement indique les bandes terminées : elle n'est mise à jour qu'au
+ * point de reprise (checkpoint), après l'écriture sur disque des bandes elles-mêmes,
+ * si bien qu'un rendu interrompu reprend aux bandes manquantes sans perdre les autres.
+ *
+ * Format du fichier :
+ * en-tête de HEADER octets : MAGIC, largeur, hauteur, itérations, hauteur des bandes, description (UTF)
+ * table d'avancement : un octet par bande, 1 si la bande est terminée
+ * données : les itérations ligne par ligne, un entier big-endian par pixel
+ *
+ * @author marais bello
+ */
+public final class IterationFile implements AutoCloseable {
+
+    private static final int MAGIC = 0x4A4D4150; // "JMAP"
+    private static final int HEADER = 4096; // Taille de l'en-tête, alignée sur une page
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int maxIteration;
+    private final int bandHeight;
+    private final int bands;
+    private final long dataOffset; // Position de la première ligne
+    private final MappedByteBuffer table; // Table d'avancement
+    private final boolean[] done; // Bandes terminées et sur disque
+    private final MappedByteBuffer[] written; // Bandes écrites depuis le dernier point de reprise, null sinon
+    private int[] lut; // Table de la palette
+    private Palette lutPalette; // Palette de la table
+    private boolean closed;
+
+    /**
+     * Constructeur, l'en-tête du fichier est déjà écrit ou vérifié
+     */
+    private IterationFile(RandomAccessFile file, int width, int height, int maxIteration, int bandHeight)
+            throws IOException {
+        this.file = file;
+        this.channel = file.getChannel();
+        this.width = width;
+        this.height = height;
+        this.maxIteration = maxIteration;
+        this.bandHeight = bandHeight;
+        this.bands = (height + bandHeight - 1) / bandHeight;
+        this.dataOffset = HEADER + (bands + HEADER - 1L) / HEADER * HEADER;
+        this.table = channel.map(FileChannel.MapMode.READ_WRITE, HEADER, bands);
+        this.done = new boolean[bands];
+        this.written = new MappedByteBuffer[bands];
+        for (int b = 0; b < bands; b++)
+            done[b] = table.get(b) == 1;
+    }
+
+    /**
+     * Ouvre le fichier d'une image, ou le crée s'il n'existe pas
+     * Un fichier existant n'est repris que s'il décrit la même image
+     *
+     * @param f            le fichier
+     * @param width        la largeur de l'image
+     * @param height       la hauteur de l'image
+     * @param maxIteration le nombre d'itérations maximum du calcul
+     * @param bandHeight   le nombre de lignes d'une bande
+     * @param description  la description de l'image, comparée à celle d'un fichier existant
+     * @return le fichier ouvert
+     * @throws IOException si le fichier ne peut pas être ouvert ou décrit une autre image
+     */
+    public static IterationFile open(File f, int width, int height, int maxIteration, int bandHeight,
+                                     String description) throws IOException {
+        if (width <= 0 || height <= 0 || bandHeight <= 0 || (long) width * bandHeight * 4 > Integer.MAX_VALUE)
+            throw new IOException("Dimensions invalides : " + width + "x" + height + ", bandes de " + bandHeight);
+        byte[] text = description.getBytes(StandardCharsets.UTF_8);
+        if (text.length > HEADER - 24)
+            throw new IOException("Description trop longue");
+        if (f.getParentFile() != null)
+            f.getParentFile().mkdirs();
+        boolean exists = f.length() > 0;
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            if (exists) {
+                raf.getChannel().read(header, 0);
+                header.flip();
+                if (header.remaining() < 24 || header.getInt() != MAGIC)
+                    throw new IOException("Fichier d'itérations invalide : " + f);
+                int w = header.getInt(), h = header.getInt(), max = header.getInt(), bh = header.getInt();
+                byte[] saved = new byte[Math.min(Math.max(0, header.getInt()), header.remaining())];
+                header.get(saved);
+                if (w != width || h != height || max != maxIteration || bh != bandHeight
+                        || !description.equals(new String(saved, StandardCharsets.UTF_8)))
+                    throw new IOException("Le fichier " + f + " décrit une autre image");
+            } else {
+                header.putInt(MAGIC).putInt(width).putInt(height).putInt(maxIteration).putInt(bandHeight)
+                        .putInt(text.length).put(text);
+                header.rewind();
+                raf.getChannel().write(header, 0);
+            }
+            IterationFile res = new IterationFile(raf, width, height, maxIteration, bandHeight);
+            raf.setLength(res.dataOffset + (long) width * height * 4);
+            return res;
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Getter de la largeur
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Getter de la hauteur
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Getter du nombre d'itérations maximum
+     */
+    public int getMaxIteration() {
+        return maxIteration;
+    }
+
+    /**
+     * Getter du nombre de bandes
+     */
+    public int getBands() {
+        return bands;
+    }
+
+    /**
+     * Renvoie la première ligne d'une bande
+     *
+     * @param band la bande
+     * @return la ligne
+     */
+    public int bandStart(int band) {
+        return band * bandHeight;
+    }
+
+    /**
+     * Renvoie la ligne de fin, exclue, d'une bande
+     *
+     * @param band la bande
+     * @return la ligne
+     */
+    public int bandEnd(int band) {
+        return Math.min(height, (band + 1) * bandHeight);
+    }
+
+    /**
+     * Indique si une bande est terminée, écrite ou retrouvée au dernier point de reprise
+     *
+     * @param band la bande
+     * @return true si la bande n'est plus à calculer
+     */
+    public synchronized boolean isDone(int band) {
+        return done[band] || written[band] != null;
+    }
+
+    /**
+     * Renvoie le nombre de bandes à calculer
+     *
+     * @return le nombre de bandes ni terminées ni écrites
+     */
+    public synchronized int remaining() {
+        int count = 0;
+        for (int b = 0; b < bands; b++)
+            if (!isDone(b))
+                count++;
+        return count;
+    }
+
+    /**
+     * Écrit les itérations d'une bande. La bande n'est marquée terminée dans le fichier
+     * qu'au prochain point de reprise.
+     *
+     * @param band la bande
+     * @param rows ses itérations, de la largeur de l'image et de la hauteur de la bande
+     * @throws IOException si la projection échoue
+     */
+    public synchronized void write(int band, IterationBuffer rows) throws IOException {
+        if (closed)
+            throw new IOException("Fichier d'itérations fermé");
+        if (rows.getWidth() != width || rows.getHeight() != bandEnd(band) - bandStart(band))
+            throw new IllegalArgumentException("Bande de taille invalide");
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE,
+                dataOffset + (long) bandStart(band) * width * 4, (long) rows.getWidth() * rows.getHeight() * 4);
+        map.asIntBuffer().put(rows.getData());
+        written[band] = map;
+    }
+
+    /**
+     * Point de reprise : les bandes écrites sont forcées sur le disque,
+     * puis marquées terminées dans la table d'avancement
+     *
+     * @throws IOException si le fichier est fermé
+     */
+    public synchronized void checkpoint() throws IOException {
+        if (closed)
+            throw new IOException("Fichier d'itérations fermé");
+        boolean changed = false;
+        for (int b = 0; b < bands; b++) {
+            if (written[b] == null)
+                continue;
+            written[b].force();
+            written[b] = null;
+            done[b] = true;
+            table.put(b, (byte) 1);
+            changed = true;
+        }
+        if (changed)
+            table.force();
+    }
+
+    /**
+     * Lit des lignes terminées et les colore, pour écrire l'image finale sans la charger en entier
+     *
+     * @param palette la palette
+     * @param from    la première ligne
+     * @param to      la ligne de fin exclue
+     * @param dst     reçoit les pixels ARGB, au moins (to - from) * largeur cases
+     * @throws IOException si la projection échoue
+     */
+    public synchronized void colorizeRows(Palette palette, int from, int to, int[] dst) throws IOException {
+        if (closed)
+            throw new IOException("Fichier d'itérations fermé");
+        int length = (to - from) * width;
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY,
+                dataOffset + (long) from * width * 4, (long) length * 4);
+        map.asIntBuffer().get(dst, 0, length);
+        if (lut == null || lutPalette != palette) {
+            lut = palette.table(maxIteration);
+            lutPalette = palette;
+        }
+        IterationBuffer.colorize(palette, lut, maxIteration, maxIteration, dst, dst, length);
+    }
+
+    /**
+     * Ferme le fichier après un dernier point de reprise
+     *
+     * @throws IOException si l'écriture échoue
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+        try {
+            checkpoint();
+        } finally {
+            closed = true;
+            file.close();
+        }
+    }
+
+}
@@ -1,7 +1,5 @@
 package model;
 
-import javafx.scene.paint.Color;
-
 import java.util.function.Function;
 
 /**
@@ -23,34 +21,77 @@ final class Julia extends Calculus {
         super(iteration, limite, f);
     }
 
+    /**
+     * La fonction est supposée quadratique pour le lissage
+     */
     @Override
-    Color getColorFrom(Complex x0) {
-        Complex xn = new Complex(x0);
+    int iterate(double real, double img, float[] fraction, int at) {
+        if (fraction != null)
+            fraction[at] = 0;
+        Complex xn = new Complex(real, img);
+        Complex saved = xn;
+        int lap = 0, power = 1;
         int i = 0;
         while (i < getIteration() && xn.module() < getLimite() && getRunStatut()) {
             xn = getFunction().apply(xn);
             i++;
+            if (checkPeriodicity()) {
+                if (Math.abs(xn.getReal() - saved.getReal()) < PERIOD_EPSILON
+                        && Math.abs(xn.getImg() - saved.getImg()) < PERIOD_EPSILON) {
+                    countIterations(i);
+                    countInterior(1);
+                    return getIteration();
+                }
+                if (++lap == power) {
+                    saved = xn;
+                    lap = 0;
+                    power <<= 1;
+                }
+            }
         }
-        return intToColor(i);
+        if (fraction != null && xn.module() >= getLimite())
+            fraction[at] = smoothFraction(xn.getReal() * xn.getReal() + xn.getImg() * xn.getImg(), 2);
+        countIterations(i);
+        return i;
     }
 
     /**
-     * Calcule de la Julia sous forme infinie
-     *
-     * @param x0 le complexe de pixel
-     * @return une Color
+     * Calcule de la Julia sous forme infinie, une allocation par itération (celle de la fonction)
      */
-    Color getInfiniteColorFrom(Complex x0) {
-        Complex xn = new Complex(x0);
-        Complex xn_1 = getFunction().apply(xn);
-        int i = 0;
-        while (i < Integer.MAX_VALUE && getRunStatut() && xn != xn_1 &&
-                Math.abs(xn.minus(xn_1).module()) > 1.0) {
-            xn = new Complex(xn_1);
-            xn_1 = getFunction().apply(xn);
+    @Override
+    int iterateInfinite(double real, double img, double[] orbit, int slot, int from, int cap,
+                        float[] fraction, int at) {
+        if (fraction != null)
+            fraction[at] = 0;
+        Complex xn = (from > 0) ? new Complex(orbit[2 * slot], orbit[2 * slot + 1]) : new Complex(real, img);
+        double sr = xn.getReal(), si = xn.getImg(); // Point de référence de la détection de cycle de Brent
+        int lap = 0, power = 1;
+        int i = from;
+        while (xn.module() < getLimite()) {
+            if (i == cap || !getRunStatut()) {
+                orbit[2 * slot] = xn.getReal();
+                orbit[2 * slot + 1] = xn.getImg();
+                countIterations(i - from);
+                return UNDECIDED;
+            }
+            xn = getFunction().apply(xn);
             i++;
+            if (Math.abs(xn.getReal() - sr) < PERIOD_EPSILON && Math.abs(xn.getImg() - si) < PERIOD_EPSILON) {
+                countIterations(i - from);
+                countInterior(1);
+                return CONVERGED;
+            }
+            if (++lap == power) {
+                sr = xn.getReal();
+                si = xn.getImg();
+                lap = 0;
+                power <<= 1;
+            }
         }
-        return intToColor(i);
+        if (fraction != null)
+            fraction[at] = smoothFraction(xn.getReal() * xn.getReal() + xn.getImg() * xn.getImg(), 2);
+        countIterations(i - from);
+        return i;
     }
 
 }
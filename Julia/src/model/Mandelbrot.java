@@ -1,7 +1,5 @@
 package model;
 
-import javafx.scene.paint.Color;
-
 /**
  * Implémentation d'une unité de calcul pour les ensembles de Mandelbrot
  *
@@ -19,20 +17,121 @@ final class Mandelbrot extends Calculus {
         super(iteration, 2.0, (xn) -> xn.times(xn));
     }
 
+    /**
+     * Indique si le point est dans la cardioïde principale ou dans le disque
+     * de période 2, tous deux inclus dans l'ensemble de Mandelbrot
+     *
+     * @param x la partie réelle
+     * @param y la partie imaginaire
+     * @return true si le point est intérieur
+     */
+    static boolean isInMainBulbs(double x, double y) {
+        double y2 = y * y;
+        double xq = x - 0.25;
+        double q = xq * xq + y2;
+        if (q * (q + xq) <= 0.25 * y2)
+            return true;
+        return (x + 1) * (x + 1) + y2 <= 0.0625;
+    }
+
+    /**
+     * Indique si l'orbite de 0 sous z^2 + c reste bornée, c'est-à-dire si c est dans
+     * l'ensemble : l'ensemble de Julia de constante c est alors connexe
+     *
+     * @param x         la partie réelle de c
+     * @param y         la partie imaginaire de c
+     * @param iteration le nombre d'itérations maximum
+     * @return true si l'orbite ne sort pas du disque de rayon 2
+     */
+    static boolean contains(double x, double y, int iteration) {
+        if (isInMainBulbs(x, y))
+            return true;
+        double zr = 0, zi = 0;
+        for (int i = 0; i < iteration; i++) {
+            double t = zr * zr - zi * zi + x;
+            zi = 2 * zr * zi + y;
+            zr = t;
+            if (zr * zr + zi * zi > 4.0)
+                return false;
+        }
+        return true;
+    }
+
     @Override
-    Color getColorFrom(Complex x0) {
+    int iterate(double real, double img, float[] fraction, int at) {
+        if (fraction != null)
+            fraction[at] = 0;
+        if (checkPeriodicity() && isInMainBulbs(real, img)) {
+            countInterior(1);
+            return getIteration();
+        }
+        Complex x0 = new Complex(real, img);
         Complex xn = new Complex(0, 0);
+        Complex saved = xn;
+        int lap = 0, power = 1;
         int i = 0;
         while (i < getIteration() && xn.module() < getLimite() && getRunStatut()) {
             xn = getFunction().apply(xn).plus(x0);
             i++;
+            if (checkPeriodicity()) {
+                if (Math.abs(xn.getReal() - saved.getReal()) < PERIOD_EPSILON
+                        && Math.abs(xn.getImg() - saved.getImg()) < PERIOD_EPSILON) {
+                    countIterations(i);
+                    countInterior(1);
+                    return getIteration();
+                }
+                if (++lap == power) {
+                    saved = xn;
+                    lap = 0;
+                    power <<= 1;
+                }
+            }
         }
-        return intToColor(i);
+        if (fraction != null && xn.module() >= getLimite())
+            fraction[at] = smoothFraction(xn.getReal() * xn.getReal() + xn.getImg() * xn.getImg(), 2);
+        countIterations(i);
+        return i;
     }
 
     @Override
-    Color getInfiniteColorFrom(Complex x0) {
-        return getColorFrom(x0);
+    int iterateInfinite(double real, double img, double[] orbit, int slot, int from, int cap,
+                        float[] fraction, int at) {
+        if (fraction != null)
+            fraction[at] = 0;
+        if (from == 0 && isInMainBulbs(real, img)) {
+            countInterior(1);
+            return CONVERGED;
+        }
+        Complex x0 = new Complex(real, img);
+        Complex xn = (from > 0) ? new Complex(orbit[2 * slot], orbit[2 * slot + 1]) : new Complex(0, 0);
+        double sr = xn.getReal(), si = xn.getImg(); // Point de référence de la détection de cycle de Brent
+        int lap = 0, power = 1;
+        int i = from;
+        while (xn.module() < getLimite()) {
+            if (i == cap || !getRunStatut()) {
+                orbit[2 * slot] = xn.getReal();
+                orbit[2 * slot + 1] = xn.getImg();
+                countIterations(i - from);
+                return UNDECIDED;
+            }
+            xn = getFunction().apply(xn).plus(x0);
+            i++;
+            if (Math.abs(xn.getReal() - sr) < PERIOD_EPSILON && Math.abs(xn.getImg() - si) < PERIOD_EPSILON) {
+                countIterations(i - from);
+                countInterior(1);
+                return CONVERGED;
+            }
+            if (++lap == power) {
+                sr = xn.getReal();
+                si = xn.getImg();
+                lap = 0;
+                power <<= 1;
+            }
+        }
+        if (fraction != null)
+            fraction[at] = smoothFraction(xn.getReal() * xn.getReal() + xn.getImg() * xn.getImg(), 2);
+        countIterations(i - from);
+        return i;
     }
 
-}
\ No newline at end of file
+}
@@ -3,6 +3,10 @@ package model;
 import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
 
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.function.Function;
 
 /**
@@ -30,6 +34,8 @@ final class ModelTest {
         double[] coeff = {0.0, 2.0, 1.0};
         Function<Complex, Complex> f = PolynomialFactory.makeFunction(coeff, new Complex(-1.0, 2.4));
         System.out.println("Factory result test : 13-5.6i =>" + f.apply(new Complex(3.0, -1.0)));
+        Polynomial p = PolynomialFactory.compile(coeff, new Complex(-1.0, 2.4));
+        System.out.println("Compiled result test : 13-5.6i =>" + p.apply(new Complex(3.0, -1.0)));
     }
 
     private static void testCalculus() {
@@ -54,6 +60,19 @@ final class ModelTest {
         Color c_m = c2.getColorFrom(new Complex(0.6008708272859217, -0.6589259796806967));
         c1.stop();
         System.out.println("Color 2 =  " + Calculus.intToColor(3).hashCode() + " => " + c_m.hashCode());
+
+        // Quadratique rapide
+        QuadraticCalculus c3 = new QuadraticCalculus(new Complex(0.285, 0.01), 300, 2.0);
+        c3.start();
+        System.out.println("Quadratique Julia = 136 => " + c3.iterate(0.6008708272859217, -0.6589259796806967));
+        c3.stop();
+        QuadraticCalculus c4 = new QuadraticCalculus(300);
+        c4.start();
+        System.out.println("Quadratique Mandelbrot = 3 => " + c4.iterate(0.6008708272859217, -0.6589259796806967));
+        c4.setPeriodicity(true);
+        System.out.println("Cardioïde rejetée = 300 => " + c4.iterate(-0.1, 0.1));
+        System.out.println("Cycle détecté = 300 => " + c4.iterate(-1.3, 0.0));
+        c4.stop();
     }
 
     private static void testGrid() {
@@ -87,6 +106,182 @@ final class ModelTest {
         end = System.currentTimeMillis();
         System.out.println("|-Temps sur " + Runtime.getRuntime().availableProcessors() + " processeurs -> " + (end - beg) + "ms");
 
+        System.out.println("Temps changement de palette : ");
+        beg = System.currentTimeMillis();
+        g.recolor(Palette.FEU);
+        end = System.currentTimeMillis();
+        System.out.println("|-Recoloration sans calcul -> " + (end - beg) + "ms");
+
+        System.out.println("Temps rendu point par point / par paquets de " + QuadraticCalculus.LANES + " points : ");
+        for (boolean lanes : new boolean[]{false, true}) {
+            Grid l = Grid.builder().mandelbrot().size(600, 600).iteration(1000)
+                    .periodicity(false).cacheSize(0).lanes(lanes).build();
+            beg = System.currentTimeMillis();
+            l.renderBuffer();
+            end = System.currentTimeMillis();
+            System.out.println("|-" + (lanes ? "Paquets" : "Points") + " -> " + (end - beg) + "ms");
+        }
+
+        System.out.println("Zoom profond 1e18 sur le bord de l'ensemble : ");
+        for (boolean deep : new boolean[]{false, true}) {
+            Grid d = Grid.builder().mandelbrot().size(200, 200).iteration(3000)
+                    .deepZoom(deep).build();
+            d.setOrigin(new BigDecimal("-0.5"), new BigDecimal("0.60168008149942359555905883151"));
+            d.imageZoom(1e20);
+            beg = System.currentTimeMillis();
+            long levels = Arrays.stream(d.renderBuffer()).distinct().count();
+            end = System.currentTimeMillis();
+            System.out.println("|-" + (deep ? "Perturbation" : "Doubles") + " : " + levels + " couleurs -> "
+                    + (end - beg) + "ms");
+        }
+
+        System.out.println("Temps rendu par suivi de bords : ");
+        Grid b = Grid.builder().mandelbrot().size(600, 600).iteration(300)
+                .strategy(RenderStrategy.BORDER).build();
+        beg = System.currentTimeMillis();
+        b.renderBuffer();
+        end = System.currentTimeMillis();
+        System.out.println("|-" + b.getStatistics().getEvaluations() + " pixels calculés sur " + 600 * 600
+                + " -> " + (end - beg) + "ms");
+
+        System.out.println("Suivi de bords sur Julia, pixels différents du rendu pixel par pixel : ");
+        for (double[] cst : new double[][]{{-0.123, 0.745}, {0.4, 0.4}}) {
+            int[][] images = new int[2][];
+            long[] computed = new long[2];
+            for (RenderStrategy st : RenderStrategy.values()) {
+                Grid j = Grid.builder().function(coeff, cst[0], cst[1]).size(600, 600).iteration(300)
+                        .cacheSize(0).strategy(st).build();
+                images[st.ordinal()] = j.renderBuffer();
+                computed[st.ordinal()] = j.getStatistics().getEvaluations();
+            }
+            long diff = 0;
+            for (int k = 0; k < images[0].length; k++)
+                if (images[0][k] != images[1][k])
+                    diff++;
+            System.out.println("|-c = " + cst[0] + "+" + cst[1] + "i : 0 => " + diff + ", "
+                    + computed[1] + " pixels calculés sur " + computed[0]);
+        }
+
+        System.out.println("Temps rendu avec anticrénelage adaptatif 2x2 : ");
+        Grid aa = Grid.builder().function(coeff, 0.285, 0.01).size(600, 600).iteration(300)
+                .supersampling(2).build();
+        beg = System.currentTimeMillis();
+        aa.renderBuffer();
+        end = System.currentTimeMillis();
+        System.out.println("|-" + (aa.getStatistics().getEvaluations() - 600 * 600) / 4 + " pixels suréchantillonnés sur "
+                + 600 * 600 + " -> " + (end - beg) + "ms");
+
+        System.out.println("Couleurs distinctes, itérations entières / lissées : ");
+        for (boolean smooth : new boolean[]{false, true}) {
+            Grid c = Grid.builder().function(coeff, 0.285, 0.01).size(600, 600).iteration(300)
+                    .palette(Palette.FEU).smooth(smooth).build();
+            System.out.println("|-" + (smooth ? "Lissées" : "Entières") + " -> "
+                    + Arrays.stream(c.renderBuffer()).distinct().count());
+        }
+
+        System.out.println("Mode infini sur Mandelbrot : ");
+        Grid inf = Grid.builder().mandelbrot().size(600, 600).infinity().build();
+        beg = System.currentTimeMillis();
+        inf.renderBuffer();
+        end = System.currentTimeMillis();
+        System.out.println("|-Limite atteinte " + inf.getDepth() + " en " + inf.getStatistics().getEvaluations()
+                + " calculs de pixels -> " + (end - beg) + "ms");
+
+        System.out.println("Mode infini, points sortis pendant la reprise colorés comme l'intérieur : ");
+        for (Palette p : Palette.values()) {
+            Grid fe = Grid.builder().mandelbrot().size(300, 300).palette(p).infinity().build();
+            int[] argb = fe.renderBuffer();
+            IterationBuffer ib = fe.getIterationBuffer();
+            int inside = argb[150 * 300 + 100]; // -0.67+0i, dans la cardioïde
+            long refined = 0, same = 0;
+            for (int k = 0; k < argb.length; k++) {
+                int n = ib.getData()[k];
+                if (n > ib.getMaxIteration() && n < Calculus.INFINITE_LIMIT) {
+                    refined++;
+                    if (argb[k] == inside)
+                        same++;
+                }
+            }
+            System.out.println("|-" + p + " : 0 => " + same + " sur " + refined + " points repris et sortis");
+        }
+
+        System.out.println("Mode infini contre un calcul à " + Calculus.INFINITE_LIMIT + " itérations, points sortis comptés dans l'ensemble : ");
+        for (String re : new String[]{"-0.75", "-1.25"}) {
+            int[][] data = new int[2][];
+            for (int k = 0; k < 2; k++) {
+                Grid.GridBuilder gb = Grid.builder().mandelbrot().size(300, 300).cacheSize(0);
+                Grid z = (k == 0 ? gb.infinity() : gb.iteration(Calculus.INFINITE_LIMIT)).build();
+                z.setOrigin(new BigDecimal(re), BigDecimal.ZERO);
+                z.imageZoom(1e5);
+                z.renderBuffer();
+                data[k] = z.getIterationBuffer().getData();
+            }
+            long wrong = 0;
+            for (int k = 0; k < data[0].length; k++)
+                if (data[0][k] == Calculus.INFINITE_LIMIT && data[1][k] < Calculus.INFINITE_LIMIT)
+                    wrong++;
+            System.out.println("|-" + re + "+0i, zoom 1e5 : 0 => " + wrong);
+        }
+
+        System.out.println("Statistiques détaillées, itérations par point / par paquets : ");
+        for (boolean lanes : new boolean[]{false, true}) {
+            Grid st = Grid.builder().mandelbrot().size(600, 600).iteration(1000)
+                    .cacheSize(0).lanes(lanes).instrument(true).build();
+            st.renderBuffer();
+            RenderStatistics rs = st.getStatistics();
+            System.out.println("|-" + (lanes ? "Paquets" : "Points") + " : " + rs.getIterations() + " itérations, "
+                    + rs.getCapped() + " pixels à la limite, 90% sortis avant " + rs.getEscapeQuantile(0.9));
+        }
+
+        System.out.println("Limite d'itérations automatique selon le zoom : ");
+        for (double z : new double[]{1, 1e3, 1e6}) {
+            Grid au = Grid.builder().mandelbrot().size(400, 300).autoIteration(true).build();
+            au.setOrigin(new BigDecimal("-0.7436447860"), new BigDecimal("0.1318252536"));
+            au.imageZoom(z * 100);
+            beg = System.currentTimeMillis();
+            au.renderBuffer();
+            end = System.currentTimeMillis();
+            System.out.println("|-Zoom " + z + " : " + au.getMaxIteration() + " itérations -> " + (end - beg) + "ms");
+        }
+
+        System.out.println("Fichier d'itérations projeté, reprise après 2 bandes sur 3 : ");
+        Grid m = Grid.builder().mandelbrot().size(600, 600).iteration(300).build();
+        try {
+            File file = File.createTempFile("julia", ".iter");
+            file.delete();
+            try (IterationFile f = IterationFile.open(file, 600, 600, 300, 200, "test")) {
+                for (int band = 0; band < 2; band++)
+                    f.write(band, m.renderIterations(0, f.bandStart(band), 600, f.bandEnd(band)));
+            }
+            try (IterationFile f = IterationFile.open(file, 600, 600, 300, 200, "test")) {
+                System.out.println("|-Bandes restantes = 1 => " + f.remaining());
+            }
+            file.delete();
+        } catch (IOException e) {
+            System.out.println("Erreur fichier : " + e.getMessage());
+        }
+
+        System.out.println("Rendu soumis remplacé par un autre : ");
+        Grid s = Grid.builder().mandelbrot().size(600, 600).iteration(100000)
+                .periodicity(false).cacheSize(0).build();
+        try {
+            RenderHandle first = s.submit((img) -> {
+            }, 0);
+            Thread.sleep(200);
+            System.out.println("|-Progression du premier rendu -> " + first.getProgress() + "%");
+            beg = System.currentTimeMillis();
+            RenderHandle second = s.submit((img) -> {
+            }, 300);
+            first.get();
+            end = System.currentTimeMillis();
+            System.out.println("|-Premier rendu " + first.getStatus() + " -> " + (end - beg) + "ms");
+            second.get();
+            System.out.println("|-Second rendu " + second.getStatus() + " à l'échéance de 300ms -> "
+                    + second.getProgress() + "%, image " + (second.getImage() != null));
+        } catch (InterruptedException e) {
+            System.out.println("Interrupted");
+        }
+
     }
 
 
@@ -0,0 +1,140 @@
+package model;
+
+/**
+ * Palettes de couleurs : conversion d'un nombre d'itérations en couleur ARGB
+ * Les couleurs sont précalculées dans une table pour un nombre d'itérations
+ * maximum donné, recolorer une image ne demande alors qu'une lecture par pixel
+ *
+ * @author marais bello
+ */
+public enum Palette {
+
+    /**
+     * Palette historique à bandes, identique à Calculus.intToColor
+     */
+    CLASSIQUE {
+        @Override
+        int color(int n, int max) {
+            return Calculus.intToArgb(n);
+        }
+
+        @Override
+        int beyond(int n, int max) {
+            return color(n, max);
+        }
+    },
+
+    /**
+     * Niveaux de gris, intérieur noir
+     */
+    GRIS {
+        @Override
+        int color(int n, int max) {
+            if (n >= max)
+                return 0xFF000000;
+            int v = (int) (255 * Math.sqrt(ratio(n, max)));
+            return rgb(v, v, v);
+        }
+    },
+
+    /**
+     * Dégradé noir, rouge, jaune, blanc, intérieur noir
+     */
+    FEU {
+        @Override
+        int color(int n, int max) {
+            if (n >= max)
+                return 0xFF000000;
+            double t = Math.sqrt(ratio(n, max));
+            return rgb(channel(3 * t), channel(3 * t - 1), channel(3 * t - 2));
+        }
+    },
+
+    /**
+     * Polynomes de Bernstein, bleu profond vers orange, intérieur noir
+     */
+    OCEAN {
+        @Override
+        int color(int n, int max) {
+            if (n >= max)
+                return 0xFF000000;
+            double t = ratio(n, max), u = 1 - t;
+            return rgb(channel(9 * u * t * t * t), channel(15 * u * u * t * t), channel(8.5 * u * u * u * t));
+        }
+    };
+
+    /**
+     * Calcule la couleur associée à un nombre d'itérations
+     *
+     * @param n   le nombre d'itérations
+     * @param max le nombre d'itérations maximum du calcul
+     * @return la couleur au format ARGB 32 bits
+     */
+    abstract int color(int n, int max);
+
+    /**
+     * Couleur d'un point sorti après max itérations ou plus, en mode infini
+     * Les palettes à intérieur noir lui donnent la couleur de max - 1 itérations
+     * pour ne pas le confondre avec l'intérieur
+     *
+     * @param n   le nombre d'itérations, au moins max
+     * @param max le nombre d'itérations qui sert d'échelle à la palette
+     * @return la couleur au format ARGB 32 bits
+     */
+    int beyond(int n, int max) {
+        return color(Math.max(0, max - 1), max);
+    }
+
+    /**
+     * Précalcule la table des couleurs de 0 à max itérations
+     *
+     * @param max le nombre d'itérations maximum du calcul
+     * @return la table, indicée par le nombre d'itérations
+     */
+    int[] table(int max) {
+        int[] lut = new int[max + 1];
+        for (int n = 0; n <= max; n++)
+            lut[n] = color(n, max);
+        return lut;
+    }
+
+    /**
+     * Renvoie la palette suivante, pour faire défiler les palettes
+     *
+     * @return la palette suivante
+     */
+    public Palette next() {
+        return values()[(ordinal() + 1) % values().length];
+    }
+
+    /**
+     * Position relative d'un nombre d'itérations
+     *
+     * @param n   le nombre d'itérations
+     * @param max le nombre d'itérations maximum
+     * @return n / max borné à [0, 1]
+     */
+    private static double ratio(int n, int max) {
+        return (max <= 0) ? 0 : Math.min(1.0, (double) n / max);
+    }
+
+    /**
+     * Convertit une intensité en canal 8 bits
+     *
+     * @param v l'intensité, bornée à [0, 1]
+     * @return le canal entre 0 et 255
+     */
+    private static int channel(double v) {
+        return (int) (255 * Math.max(0.0, Math.min(1.0, v)));
+    }
+
+    /**
+     * Assemble une couleur opaque
+     *
+     * @return la couleur au format ARGB 32 bits
+     */
+    private static int rgb(int r, int g, int b) {
+        return 0xFF000000 | r << 16 | g << 8 | b;
+    }
+
+}
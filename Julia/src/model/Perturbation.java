@@ -0,0 +1,120 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Calcul par perturbation pour les zooms profonds
+ * Une seule orbite de référence, au centre de l'image, est calculée en
+ * précision arbitraire. Chaque pixel n'itère ensuite que son écart à cette
+ * orbite, en doubles : z = Z + d, d' = 2 Z d + d^2 + dc.
+ * Lorsque le point s'approche de 0 plus que son écart (|z| < |d|), l'écart
+ * perd sa précision : le calcul est alors rebasé sur le début de l'orbite
+ * de référence (d = z - Z0), ce qui corrige les pixels faux sans seconde référence.
+ *
+ * @author marais bello
+ */
+final class Perturbation {
+
+    private final QuadraticCalculus unit;
+    private final boolean mandelbrot;
+    private final BigDecimal real, img; // Centre de la référence
+    private final int iteration;
+    private final double[] refReal, refImg; // Orbite de référence arrondie en doubles
+    private final int length; // Nombre de points de l'orbite de référence
+    private final double limite2;
+
+    /**
+     * Constructeur, calcule l'orbite de référence
+     *
+     * @param unit l'unité quadratique dont on reprend la fonction et les itérations
+     * @param real la partie réelle du centre
+     * @param img  la partie imaginaire du centre
+     * @param zoom le zoom, qui fixe la précision nécessaire
+     */
+    Perturbation(QuadraticCalculus unit, BigDecimal real, BigDecimal img, double zoom) {
+        this.unit = unit;
+        this.mandelbrot = unit.isMandelbrot();
+        this.real = real;
+        this.img = img;
+        this.iteration = unit.getIteration();
+        this.limite2 = unit.getLimite() * unit.getLimite();
+        this.refReal = new double[iteration + 1];
+        this.refImg = new double[iteration + 1];
+        MathContext mc = new MathContext(20 + (int) Math.ceil(Math.log10(Math.max(1, zoom))));
+        BigDecimal two = BigDecimal.valueOf(2);
+        BigDecimal cr = mandelbrot ? real : new BigDecimal(unit.getConstReal());
+        BigDecimal ci = mandelbrot ? img : new BigDecimal(unit.getConstImg());
+        BigDecimal zr = mandelbrot ? BigDecimal.ZERO : real;
+        BigDecimal zi = mandelbrot ? BigDecimal.ZERO : img;
+        int n = 0;
+        refReal[0] = zr.doubleValue();
+        refImg[0] = zi.doubleValue();
+        while (n < iteration && refReal[n] * refReal[n] + refImg[n] * refImg[n] < limite2 && unit.getRunStatut()) {
+            BigDecimal tmp = zr.multiply(zr, mc).subtract(zi.multiply(zi, mc), mc).add(cr, mc);
+            zi = two.multiply(zr, mc).multiply(zi, mc).add(ci, mc);
+            zr = tmp;
+            n++;
+            refReal[n] = zr.doubleValue();
+            refImg[n] = zi.doubleValue();
+        }
+        this.length = n + 1;
+    }
+
+    /**
+     * Indique si la référence convient pour un rendu
+     *
+     * @param unit l'unité de calcul
+     * @param real la partie réelle du centre
+     * @param img  la partie imaginaire du centre
+     * @return true si l'orbite peut être réutilisée, elle doit être au moins aussi longue que la limite
+     */
+    boolean matches(Calculus unit, BigDecimal real, BigDecimal img) {
+        return this.unit == unit && iteration >= unit.getIteration()
+                && this.real.compareTo(real) == 0 && this.img.compareTo(img) == 0;
+    }
+
+    /**
+     * Calcule le nombre d'itérations d'un pixel à partir de son écart au centre
+     *
+     * @param dReal    l'écart réel au centre
+     * @param dImg     l'écart imaginaire au centre
+     * @param fraction reçoit la partie fractionnaire lissée, peut être null
+     * @param at       la case de fraction à écrire
+     * @return le nombre d'itérations avant de sortir de la limite
+     */
+    int iterate(double dReal, double dImg, float[] fraction, int at) {
+        if (fraction != null)
+            fraction[at] = 0;
+        double ar = mandelbrot ? dReal : 0, ai = mandelbrot ? dImg : 0; // Écart ajouté à chaque pas
+        double dr = mandelbrot ? 0 : dReal, di = mandelbrot ? 0 : dImg; // Écart courant
+        int m = 0; // Position dans l'orbite de référence
+        int i = 0;
+        int max = unit.getIteration();
+        while (i < max && unit.getRunStatut()) {
+            double zr = refReal[m] + dr, zi = refImg[m] + di;
+            double z2 = zr * zr + zi * zi;
+            if (z2 >= limite2) {
+                if (fraction != null)
+                    fraction[at] = unit.smoothFraction(z2, 2);
+                unit.countIterations(i);
+                return i;
+            }
+            if (z2 < dr * dr + di * di || m == length - 1) {
+                // Rebasage sur le début de l'orbite
+                dr = zr - refReal[0];
+                di = zi - refImg[0];
+                m = 0;
+            }
+            double rr = refReal[m], ri = refImg[m];
+            double nr = 2 * (rr * dr - ri * di) + dr * dr - di * di + ar;
+            di = 2 * (rr * di + ri * dr) + 2 * dr * di + ai;
+            dr = nr;
+            m++;
+            i++;
+        }
+        unit.countIterations(i);
+        return i;
+    }
+
+}
@@ -0,0 +1,88 @@
+package model;
+
+import java.util.function.Function;
+
+/**
+ * Polynome compilé sous forme de Horner
+ * Les coefficients réels sont stockés dans un tableau de doubles,
+ * la constante complexe est ajoutée au dernier pas du schéma de Horner
+ *
+ * @author bello marais
+ */
+final class Polynomial implements Function<Complex, Complex> {
+
+    private final double[] coeffs; // coeffs[i] devant x^i, coeffs[0] inutilisé
+    private final double cReal;
+    private final double cImg;
+
+    /**
+     * Constructeur
+     *
+     * @param coeffs    les coefficients devant les termes (l'indice 0 est ignoré)
+     * @param constante la valeur constante
+     */
+    Polynomial(double[] coeffs, Complex constante) {
+        int degree = coeffs.length - 1;
+        while (degree > 0 && coeffs[degree] == 0.0)
+            degree--;
+        this.coeffs = new double[Math.max(degree, 0) + 1];
+        for (int i = 1; i <= degree; i++)
+            this.coeffs[i] = coeffs[i];
+        this.cReal = constante.getReal();
+        this.cImg = constante.getImg();
+    }
+
+    /**
+     * Getter du degré
+     */
+    int getDegree() {
+        return coeffs.length - 1;
+    }
+
+    /**
+     * Getter des coefficients, indice 0 à ignorer
+     */
+    double[] getCoeffs() {
+        return coeffs;
+    }
+
+    /**
+     * Getter partie réelle de la constante
+     */
+    double getConstReal() {
+        return cReal;
+    }
+
+    /**
+     * Getter partie imaginaire de la constante
+     */
+    double getConstImg() {
+        return cImg;
+    }
+
+    @Override
+    public Complex apply(Complex x) {
+        int n = getDegree();
+        if (n == 0)
+            return new Complex(cReal, cImg);
+        double xr = x.getReal(), xi = x.getImg();
+        double pr = coeffs[n], pi = 0;
+        for (int k = n - 1; k >= 1; k--) {
+            double tmp = pr * xr - pi * xi + coeffs[k];
+            pi = pr * xi + pi * xr;
+            pr = tmp;
+        }
+        return new Complex(pr * xr - pi * xi + cReal, pr * xi + pi * xr + cImg);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = getDegree(); i >= 1; i--) {
+            if (coeffs[i] != 0.0)
+                sb.append(coeffs[i]).append("x^").append(i).append(" + ");
+        }
+        return sb.append("(").append(cReal).append("+").append(cImg).append("i)").toString();
+    }
+
+}
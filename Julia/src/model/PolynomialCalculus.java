@@ -0,0 +1,132 @@
+package model;
+
+/**
+ * Unité de calcul des ensembles de Julia pour un polynome quelconque.
+ * Le polynome compilé est évalué par le schéma de Horner sur des doubles
+ * primitifs, sans allocation pendant les itérations.
+ *
+ * @author bello marais
+ * @see Calculus
+ * @see Polynomial
+ */
+final class PolynomialCalculus extends Calculus {
+
+    private final double[] coeffs;
+    private final int degree;
+    private final double cReal;
+    private final double cImg;
+    private final double limite2; // Carré de la limite
+
+    /**
+     * Constructeur
+     *
+     * @param p         le polynome compilé
+     * @param iteration le nombre d'itérations maximum
+     * @param limite    la limite de la fonction
+     */
+    PolynomialCalculus(Polynomial p, int iteration, double limite) {
+        super(iteration, limite, p);
+        this.coeffs = p.getCoeffs();
+        this.degree = p.getDegree();
+        this.cReal = p.getConstReal();
+        this.cImg = p.getConstImg();
+        this.limite2 = limite * limite;
+    }
+
+    @Override
+    int iterate(double real, double img, float[] fraction, int at) {
+        if (fraction != null)
+            fraction[at] = 0;
+        double zr = real, zi = img;
+        boolean periodicity = checkPeriodicity();
+        double sr = zr, si = zi; // Point de référence de la détection de cycle de Brent
+        int lap = 0, power = 1;
+        int max = getIteration();
+        int i = 0;
+        while (i < max && zr * zr + zi * zi < limite2 && getRunStatut()) {
+            double pr = coeffs[degree], pi = 0;
+            for (int k = degree - 1; k >= 1; k--) {
+                double tmp = pr * zr - pi * zi + coeffs[k];
+                pi = pr * zi + pi * zr;
+                pr = tmp;
+            }
+            if (degree == 0) {
+                zr = cReal;
+                zi = cImg;
+            } else {
+                double tmp = pr * zr - pi * zi + cReal;
+                zi = pr * zi + pi * zr + cImg;
+                zr = tmp;
+            }
+            i++;
+            if (periodicity) {
+                if (Math.abs(zr - sr) < PERIOD_EPSILON && Math.abs(zi - si) < PERIOD_EPSILON) {
+                    countIterations(i);
+                    countInterior(1);
+                    return max;
+                }
+                if (++lap == power) {
+                    sr = zr;
+                    si = zi;
+                    lap = 0;
+                    power <<= 1;
+                }
+            }
+        }
+        double z2 = zr * zr + zi * zi;
+        if (fraction != null && z2 >= limite2)
+            fraction[at] = smoothFraction(z2, degree);
+        countIterations(i);
+        return i;
+    }
+
+    @Override
+    int iterateInfinite(double real, double img, double[] orbit, int slot, int from, int cap,
+                        float[] fraction, int at) {
+        if (fraction != null)
+            fraction[at] = 0;
+        double zr = (from > 0) ? orbit[2 * slot] : real, zi = (from > 0) ? orbit[2 * slot + 1] : img;
+        double sr = zr, si = zi; // Point de référence de la détection de cycle de Brent
+        int lap = 0, power = 1;
+        int i = from;
+        while (zr * zr + zi * zi < limite2) {
+            if (i == cap || !getRunStatut()) {
+                orbit[2 * slot] = zr;
+                orbit[2 * slot + 1] = zi;
+                countIterations(i - from);
+                return UNDECIDED;
+            }
+            double pr = coeffs[degree], pi = 0;
+            for (int k = degree - 1; k >= 1; k--) {
+                double tmp = pr * zr - pi * zi + coeffs[k];
+                pi = pr * zi + pi * zr;
+                pr = tmp;
+            }
+            if (degree == 0) {
+                zr = cReal;
+                zi = cImg;
+            } else {
+                double tmp = pr * zr - pi * zi + cReal;
+                zi = pr * zi + pi * zr + cImg;
+                zr = tmp;
+            }
+            i++;
+            if (Math.abs(zr - sr) < PERIOD_EPSILON && Math.abs(zi - si) < PERIOD_EPSILON) {
+                countIterations(i - from);
+                countInterior(1);
+                return CONVERGED;
+            }
+            if (++lap == power) {
+                sr = zr;
+                si = zi;
+                lap = 0;
+                power <<= 1;
+            }
+        }
+        if (fraction != null)
+            fraction[at] = smoothFraction(zr * zr + zi * zi, degree);
+        countIterations(i - from);
+        return i;
+    }
+
+}
@@ -34,6 +34,23 @@ public final class PolynomialFactory {
         return x -> makeFunctionAux(coeffs, constante, i - 1).apply(x).plus(giveTerm(coeffs[i], i).apply(x));
     }
 
+    /**
+     * Indique si les coefficients décrivent le polynome x^2
+     * (le coefficient d'indice 0 est remplacé par la constante)
+     *
+     * @param coeffs l'ensemble des coefficients devant les termes
+     * @return true si le polynome est quadratique simple
+     */
+    static boolean isQuadratic(double[] coeffs) {
+        if (coeffs.length < 3 || coeffs[1] != 0.0 || coeffs[2] != 1.0)
+            return false;
+        for (int i = 3; i < coeffs.length; i++) {
+            if (coeffs[i] != 0.0)
+                return false;
+        }
+        return true;
+    }
+
     /**
      * Fabrique les termes du polynome
      *
@@ -46,4 +63,16 @@ public final class PolynomialFactory {
         return makeFunctionAux(coeffs, constante, coeffs.length - 1);
     }
 
+    /**
+     * Compile le polynome sous forme de Horner sur des doubles primitifs
+     *
+     * @param coeffs    l'ensemble des coefficients devant les termes
+     *                  Ex : coeff = {0.0,0.0,1.0} donne le polynome x^2
+     * @param constante la valeur constante
+     * @return le polynome compilé, utilisable aussi comme fonction C -> C
+     */
+    static Polynomial compile(double[] coeffs, Complex constante) {
+        return new Polynomial(coeffs, constante);
+    }
+
 }
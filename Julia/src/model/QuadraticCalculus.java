@@ -0,0 +1,327 @@
+package model;
+
+/**
+ * Unité de calcul rapide pour les fonctions quadratiques z^2 + c
+ * (Julia) et pour l'ensemble de Mandelbrot.
+ * Les itérations se font sur des doubles primitifs : aucun objet
+ * n'est alloué pendant le calcul d'un pixel.
+ *
+ * @author bello marais
+ * @see Calculus
+ */
+final class QuadraticCalculus extends Calculus {
+
+    static final int LANES = 4; // Nombre de points itérés ensemble par iterateRow
+
+    private final boolean mandelbrot;
+    private final double cReal;
+    private final double cImg;
+    private final double limite2; // Carré de la limite
+
+    /**
+     * Constructeur d'une unité de Julia z^2 + c
+     *
+     * @param c         la constante c
+     * @param iteration le nombre d'itérations maximum
+     * @param limite    la limite de la fonction
+     */
+    QuadraticCalculus(Complex c, int iteration, double limite) {
+        super(iteration, limite, (xn) -> xn.times(xn).plus(c));
+        this.mandelbrot = false;
+        this.cReal = c.getReal();
+        this.cImg = c.getImg();
+        this.limite2 = limite * limite;
+    }
+
+    /**
+     * Constructeur d'une unité de Mandelbrot
+     *
+     * @param iteration le nombre d'itérations maximum
+     */
+    QuadraticCalculus(int iteration) {
+        super(iteration, 2.0, (xn) -> xn.times(xn));
+        this.mandelbrot = true;
+        this.cReal = 0;
+        this.cImg = 0;
+        this.limite2 = 4.0;
+    }
+
+    /**
+     * Indique si l'unité calcule l'ensemble de Mandelbrot
+     */
+    boolean isMandelbrot() {
+        return mandelbrot;
+    }
+
+    /**
+     * Getter de la partie réelle de la constante c
+     */
+    double getConstReal() {
+        return cReal;
+    }
+
+    /**
+     * Getter de la partie imaginaire de la constante c
+     */
+    double getConstImg() {
+        return cImg;
+    }
+
+    @Override
+    int iterate(double real, double img, float[] fraction, int at) {
+        if (fraction != null)
+            fraction[at] = 0;
+        boolean periodicity = checkPeriodicity();
+        int max = getIteration();
+        if (mandelbrot && periodicity && Mandelbrot.isInMainBulbs(real, img)) {
+            countInterior(1);
+            return max;
+        }
+        double zr, zi, cr, ci;
+        if (mandelbrot) {
+            zr = 0;
+            zi = 0;
+            cr = real;
+            ci = img;
+        } else {
+            zr = real;
+            zi = img;
+            cr = cReal;
+            ci = cImg;
+        }
+        double zr2 = zr * zr, zi2 = zi * zi;
+        double sr = zr, si = zi; // Point de référence de la détection de cycle de Brent
+        int lap = 0, power = 1;
+        int i = 0;
+        while (i < max && zr2 + zi2 < limite2 && getRunStatut()) {
+            zi = 2 * zr * zi + ci;
+            zr = zr2 - zi2 + cr;
+            zr2 = zr * zr;
+            zi2 = zi * zi;
+            i++;
+            if (periodicity) {
+                if (Math.abs(zr - sr) < PERIOD_EPSILON && Math.abs(zi - si) < PERIOD_EPSILON) {
+                    countIterations(i);
+                    countInterior(1);
+                    return max;
+                }
+                if (++lap == power) {
+                    sr = zr;
+                    si = zi;
+                    lap = 0;
+                    power <<= 1;
+                }
+            }
+        }
+        if (fraction != null && zr2 + zi2 >= limite2)
+            fraction[at] = smoothFraction(zr2 + zi2, 2);
+        countIterations(i);
+        return i;
+    }
+
+    /**
+     * Itère les points par paquets de LANES (4 voies déroulées à la main) :
+     * les orbites indépendantes avancent ensemble dans des variables locales, ce qui casse la chaîne de dépendance
+     * d'une orbite seule et laisse le processeur calculer les points en parallèle.
+     * Un drapeau par voie marque les points encore dans la limite, un point sorti
+     * n'est plus compté ; son module au moment de la sortie est gardé pour le lissage.
+     * Les voies ne vivent que dans des variables locales : une ligne n'alloue rien.
+     * Le résultat est identique à iterate
+     */
+    @Override
+    void iterateRow(double[] real, double img, int[] out, float[] fraction, int count) {
+        boolean periodicity = checkPeriodicity();
+        int max = getIteration();
+        for (int base = 0; base < count; base += LANES) {
+            int lanes = Math.min(LANES, count - base);
+            // Voie l : point pl de la ligne, z = (xl, yl), constante = (rl, il), al = 1 tant que le point est
+            // dans la limite, sl = 1 si le point est itéré (0 pour une voie vide ou un point rejeté par la cardioïde),
+            // (ul, vl) point de référence de la détection de cycle de Brent, cl itérations avant le cycle détecté
+            // (-1 sans cycle), ml carré du dernier module calculé
+            double p0 = real[base];
+            double x0 = mandelbrot ? 0 : p0, y0 = mandelbrot ? 0 : img, r0 = mandelbrot ? p0 : cReal;
+            double i0 = mandelbrot ? img : cImg, u0 = x0, v0 = y0, m0 = 0;
+            int s0 = lane(p0, img, true, periodicity), a0 = s0, n0 = (a0 == 0) ? max : 0, c0 = -1;
+            double p1 = (lanes > 1) ? real[base + 1] : 0;
+            double x1 = mandelbrot ? 0 : p1, y1 = mandelbrot ? 0 : img, r1 = mandelbrot ? p1 : cReal;
+            double i1 = mandelbrot ? img : cImg, u1 = x1, v1 = y1, m1 = 0;
+            int s1 = lane(p1, img, lanes > 1, periodicity), a1 = s1, n1 = (a1 == 0) ? max : 0, c1 = -1;
+            double p2 = (lanes > 2) ? real[base + 2] : 0;
+            double x2 = mandelbrot ? 0 : p2, y2 = mandelbrot ? 0 : img, r2 = mandelbrot ? p2 : cReal;
+            double i2 = mandelbrot ? img : cImg, u2 = x2, v2 = y2, m2 = 0;
+            int s2 = lane(p2, img, lanes > 2, periodicity), a2 = s2, n2 = (a2 == 0) ? max : 0, c2 = -1;
+            double p3 = (lanes > 3) ? real[base + 3] : 0;
+            double x3 = mandelbrot ? 0 : p3, y3 = mandelbrot ? 0 : img, r3 = mandelbrot ? p3 : cReal;
+            double i3 = mandelbrot ? img : cImg, u3 = x3, v3 = y3, m3 = 0;
+            int s3 = lane(p3, img, lanes > 3, periodicity), a3 = s3, n3 = (a3 == 0) ? max : 0, c3 = -1;
+            int lap = 0, power = 1;
+            for (int k = 0; k < max && (a0 | a1 | a2 | a3) != 0 && getRunStatut(); k++) {
+                double xx0 = x0 * x0, yy0 = y0 * y0;
+                m0 = (a0 == 1) ? xx0 + yy0 : m0;
+                a0 &= (m0 < limite2) ? 1 : 0;
+                n0 += a0;
+                y0 = 2 * x0 * y0 + i0;
+                x0 = xx0 - yy0 + r0;
+                double xx1 = x1 * x1, yy1 = y1 * y1;
+                m1 = (a1 == 1) ? xx1 + yy1 : m1;
+                a1 &= (m1 < limite2) ? 1 : 0;
+                n1 += a1;
+                y1 = 2 * x1 * y1 + i1;
+                x1 = xx1 - yy1 + r1;
+                double xx2 = x2 * x2, yy2 = y2 * y2;
+                m2 = (a2 == 1) ? xx2 + yy2 : m2;
+                a2 &= (m2 < limite2) ? 1 : 0;
+                n2 += a2;
+                y2 = 2 * x2 * y2 + i2;
+                x2 = xx2 - yy2 + r2;
+                double xx3 = x3 * x3, yy3 = y3 * y3;
+                m3 = (a3 == 1) ? xx3 + yy3 : m3;
+                a3 &= (m3 < limite2) ? 1 : 0;
+                n3 += a3;
+                y3 = 2 * x3 * y3 + i3;
+                x3 = xx3 - yy3 + r3;
+                if (periodicity) {
+                    if (a0 == 1 && Math.abs(x0 - u0) < PERIOD_EPSILON && Math.abs(y0 - v0) < PERIOD_EPSILON) {
+                        a0 = 0;
+                        c0 = n0;
+                        n0 = max;
+                    }
+                    if (a1 == 1 && Math.abs(x1 - u1) < PERIOD_EPSILON && Math.abs(y1 - v1) < PERIOD_EPSILON) {
+                        a1 = 0;
+                        c1 = n1;
+                        n1 = max;
+                    }
+                    if (a2 == 1 && Math.abs(x2 - u2) < PERIOD_EPSILON && Math.abs(y2 - v2) < PERIOD_EPSILON) {
+                        a2 = 0;
+                        c2 = n2;
+                        n2 = max;
+                    }
+                    if (a3 == 1 && Math.abs(x3 - u3) < PERIOD_EPSILON && Math.abs(y3 - v3) < PERIOD_EPSILON) {
+                        a3 = 0;
+                        c3 = n3;
+                        n3 = max;
+                    }
+                    if (++lap == power) {
+                        u0 = x0;
+                        v0 = y0;
+                        u1 = x1;
+                        v1 = y1;
+                        u2 = x2;
+                        v2 = y2;
+                        u3 = x3;
+                        v3 = y3;
+                        lap = 0;
+                        power <<= 1;
+                    }
+                }
+            }
+            store(out, fraction, base, n0, c0, s0, m0);
+            if (lanes > 1)
+                store(out, fraction, base + 1, n1, c1, s1, m1);
+            if (lanes > 2)
+                store(out, fraction, base + 2, n2, c2, s2, m2);
+            if (lanes > 3)
+                store(out, fraction, base + 3, n3, c3, s3, m3);
+        }
+    }
+
+    /**
+     * Renvoie 1 si le point d'une voie de iterateRow doit être itéré
+     *
+     * @param re          la partie réelle du point
+     * @param img         la partie imaginaire du point
+     * @param used        false pour une voie vide, au-delà de la fin de la ligne
+     * @param periodicity true si les points de la cardioïde et du disque de période 2 sont rejetés
+     * @return 1 si le point est itéré, 0 sinon
+     */
+    private int lane(double re, double img, boolean used, boolean periodicity) {
+        return (used && !(mandelbrot && periodicity && Mandelbrot.isInMainBulbs(re, img))) ? 1 : 0;
+    }
+
+    /**
+     * Écrit le résultat d'une voie de iterateRow et compte ses itérations si l'unité est instrumentée
+     *
+     * @param out      le tableau des nombres d'itérations
+     * @param fraction le tableau des parties fractionnaires, null sans lissage
+     * @param at       la case de la voie
+     * @param n        le nombre d'itérations de la voie
+     * @param cycle    les itérations avant le cycle détecté, -1 sans cycle
+     * @param started  1 si le point a été itéré, 0 s'il a été rejeté par la cardioïde ou le disque de période 2
+     * @param module   le carré du dernier module calculé
+     */
+    private void store(int[] out, float[] fraction, int at, int n, int cycle, int started, double module) {
+        out[at] = n;
+        if (fraction != null)
+            fraction[at] = (module >= limite2) ? smoothFraction(module, 2) : 0;
+        if (isInstrumented()) {
+            if (cycle >= 0) {
+                countIterations(cycle);
+                countInterior(1);
+            } else if (started == 0) {
+                countInterior(1);
+            } else {
+                countIterations(n);
+            }
+        }
+    }
+
+    @Override
+    int iterateInfinite(double real, double img, double[] orbit, int slot, int from, int cap,
+                        float[] fraction, int at) {
+        if (fraction != null)
+            fraction[at] = 0;
+        double zr, zi, cr, ci;
+        if (mandelbrot) {
+            if (from == 0 && Mandelbrot.isInMainBulbs(real, img)) {
+                countInterior(1);
+                return CONVERGED;
+            }
+            zr = 0;
+            zi = 0;
+            cr = real;
+            ci = img;
+        } else {
+            zr = real;
+            zi = img;
+            cr = cReal;
+            ci = cImg;
+        }
+        if (from > 0) {
+            zr = orbit[2 * slot];
+            zi = orbit[2 * slot + 1];
+        }
+        double zr2 = zr * zr, zi2 = zi * zi;
+        double sr = zr, si = zi; // Point de référence de la détection de cycle de Brent
+        int lap = 0, power = 1;
+        int i = from;
+        while (zr2 + zi2 < limite2) {
+            if (i == cap || !getRunStatut()) {
+                orbit[2 * slot] = zr;
+                orbit[2 * slot + 1] = zi;
+                countIterations(i - from);
+                return UNDECIDED;
+            }
+            zi = 2 * zr * zi + ci;
+            zr = zr2 - zi2 + cr;
+            zr2 = zr * zr;
+            zi2 = zi * zi;
+            i++;
+            if (Math.abs(zr - sr) < PERIOD_EPSILON && Math.abs(zi - si) < PERIOD_EPSILON) {
+                countIterations(i - from);
+                countInterior(1);
+                return CONVERGED;
+            }
+            if (++lap == power) {
+                sr = zr;
+                si = zi;
+                lap = 0;
+                power <<= 1;
+            }
+        }
+        if (fraction != null)
+            fraction[at] = smoothFraction(zr2 + zi2, 2);
+        countIterations(i - from);
+        return i;
+    }
+
+}
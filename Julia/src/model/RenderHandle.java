@@ -0,0 +1,230 @@
+package model;
+
+import javafx.scene.image.Image;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Suivi d'un rendu lancé par Grid.submit
+ * Le rendu peut être annulé, borné dans le temps, et signale sa progression
+ * et sa fin. Un rendu soumis après lui sur la même grille l'abandonne.
+ *
+ * @author marais bello
+ */
+public final class RenderHandle {
+
+    /**
+     * État d'un rendu
+     */
+    public enum Status {
+        /**
+         * En attente ou en cours de calcul
+         */
+        RUNNING,
+        /**
+         * Terminé, l'image est complète
+         */
+        DONE,
+        /**
+         * Annulé, ou remplacé par un rendu plus récent
+         */
+        CANCELLED,
+        /**
+         * Arrêté à l'échéance, l'image est celle de la dernière passe terminée
+         */
+        EXPIRED
+    }
+
+    private final Grid grid;
+    private final int generation; // Numéro du rendu dans la grille
+    private final List<Consumer<RenderHandle>> callbacks;
+    private Status status;
+    private boolean started; // Le calcul a commencé
+    private boolean finished; // Plus aucun calcul n'est fait pour ce rendu
+    private Image image; // Dernière image publiée
+    private int progress; // Progression figée à la fin du rendu
+
+    /**
+     * Constructeur
+     *
+     * @param grid       la grille qui calcule
+     * @param generation le numéro du rendu
+     */
+    RenderHandle(Grid grid, int generation) {
+        this.grid = grid;
+        this.generation = generation;
+        this.callbacks = new ArrayList<>();
+        this.status = Status.RUNNING;
+    }
+
+    /**
+     * Getter du numéro du rendu
+     */
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Indique le début effectif du calcul
+     *
+     * @return false si le rendu a déjà été annulé
+     */
+    synchronized boolean start() {
+        started = true;
+        return status == Status.RUNNING;
+    }
+
+    /**
+     * Enregistre l'image d'une passe terminée
+     *
+     * @param img l'image
+     */
+    synchronized void publish(Image img) {
+        if (status == Status.RUNNING)
+            image = img;
+    }
+
+    /**
+     * Termine le rendu et appelle les callbacks
+     *
+     * @param img l'image finale, null si le rendu n'est pas allé au bout
+     */
+    void finish(Image img) {
+        List<Consumer<RenderHandle>> todo;
+        synchronized (this) {
+            if (status == Status.RUNNING) {
+                status = (img != null) ? Status.DONE : Status.CANCELLED;
+                if (img != null)
+                    image = img;
+            }
+            progress = (status == Status.DONE) ? 100 : (started ? grid.getProgress() : 0);
+            todo = new ArrayList<>(callbacks);
+            callbacks.clear();
+            finished = true;
+            notifyAll();
+        }
+        for (Consumer<RenderHandle> c : todo)
+            c.accept(this);
+    }
+
+    /**
+     * Arrête le rendu avec l'état donné s'il est encore en cours
+     *
+     * @param end CANCELLED ou EXPIRED
+     * @return true si le rendu a été arrêté
+     */
+    private boolean end(Status end) {
+        synchronized (this) {
+            if (status != Status.RUNNING)
+                return false;
+            status = end;
+        }
+        grid.stop(generation);
+        return true;
+    }
+
+    /**
+     * Annule le rendu, le calcul s'arrête en quelques millisecondes
+     *
+     * @return true si le rendu était en cours
+     */
+    public boolean cancel() {
+        return end(Status.CANCELLED);
+    }
+
+    /**
+     * Arrête le rendu à son échéance
+     */
+    void expire() {
+        end(Status.EXPIRED);
+    }
+
+    /**
+     * Renvoie l'état du rendu
+     *
+     * @return l'état
+     */
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Indique si le rendu est terminé, quelle qu'en soit la raison
+     *
+     * @return true si plus aucun calcul n'est fait pour ce rendu
+     */
+    public synchronized boolean isDone() {
+        return finished;
+    }
+
+    /**
+     * Renvoie la progression du rendu, toutes passes confondues
+     *
+     * @return le pourcentage de pixels calculés, entre 0 et 100
+     */
+    public synchronized int getProgress() {
+        if (status != Status.RUNNING)
+            return progress;
+        return started ? grid.getProgress() : 0;
+    }
+
+    /**
+     * Renvoie la dernière image disponible sans attendre
+     *
+     * @return l'image finale, celle de la dernière passe terminée, ou null
+     */
+    public synchronized Image getImage() {
+        return image;
+    }
+
+    /**
+     * Attend la fin du rendu
+     *
+     * @return l'image finale, celle de la dernière passe terminée si le rendu
+     * a été arrêté, null si aucune passe n'est terminée
+     * @throws InterruptedException si l'attente est interrompue
+     */
+    public synchronized Image get() throws InterruptedException {
+        while (!finished)
+            wait();
+        return image;
+    }
+
+    /**
+     * Attend la fin du rendu au plus timeout
+     *
+     * @param timeout la durée maximale d'attente
+     * @param unit    l'unité de timeout
+     * @return comme get, ou la dernière image disponible si le délai est dépassé
+     * @throws InterruptedException si l'attente est interrompue
+     */
+    public synchronized Image get(long timeout, TimeUnit unit) throws InterruptedException {
+        long end = System.nanoTime() + unit.toNanos(timeout);
+        long left;
+        while (!finished && (left = end - System.nanoTime()) > 0)
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        return image;
+    }
+
+    /**
+     * Ajoute une action appelée une fois à la fin du rendu,
+     * tout de suite si le rendu est déjà terminé
+     *
+     * @param callback l'action, reçoit ce handle
+     * @return this
+     */
+    public RenderHandle onComplete(Consumer<RenderHandle> callback) {
+        synchronized (this) {
+            if (!finished) {
+                callbacks.add(callback);
+                return this;
+            }
+        }
+        callback.accept(this);
+        return this;
+    }
+
+}
@@ -0,0 +1,316 @@
+package model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistiques d'un rendu de Grid
+ * Les compteurs détaillés (itérations, histogramme, temps par tuile et par worker)
+ * ne sont remplis que si la grille est instrumentée, voir GridBuilder.instrument :
+ * ils servent à régler la limite d'itérations et la taille des tuiles.
+ *
+ * @author marais bello
+ */
+public final class RenderStatistics {
+
+    static final int BUCKETS = 32; // Cases de l'histogramme : 0, puis [2^(k-1), 2^k) pour la case k
+
+    private final int parallelism;
+    private final long tiles;
+    private final long steals;
+    private final long evaluations;
+    private final long wallTime; // ms
+    private final long busyTime; // ms, cumulé sur tous les workers
+    private final boolean instrumented;
+    private final long iterations; // Itérations exécutées par les unités de calcul
+    private final long shortcuts; // Calculs arrêtés avant la limite par rejet ou détection de cycle
+    private final long pixels; // Pixels de l'image couverts par le rendu
+    private final long capped; // Pixels restés à la limite d'itérations
+    private final long cancelled; // Pixels non parcourus à cause d'un arrêt, toutes passes confondues
+    private final long tileTimeMax; // µs
+    private final long[] histogram; // Pixels sortis, par case de log2 du nombre d'itérations
+    private final Map<String, Long> workers; // Temps de calcul en ms par worker
+
+    /**
+     * Constructeur sans instrumentation
+     *
+     * @param parallelism le nombre de workers du pool
+     * @param tiles       le nombre de tuiles calculées
+     * @param steals      le nombre de tâches volées entre workers
+     * @param evaluations le nombre de pixels réellement itérés
+     * @param wallTime    la durée du rendu en ms
+     * @param busyTime    le temps de calcul cumulé des workers en ms
+     */
+    RenderStatistics(int parallelism, long tiles, long steals, long evaluations, long wallTime, long busyTime) {
+        this(parallelism, tiles, steals, evaluations, wallTime, busyTime, false, 0, 0, 0, 0, 0, 0,
+                new long[BUCKETS], Collections.emptyMap());
+    }
+
+    /**
+     * Constructeur complet
+     *
+     * @param parallelism  le nombre de workers du pool
+     * @param tiles        le nombre de tuiles calculées
+     * @param steals       le nombre de tâches volées entre workers
+     * @param evaluations  le nombre de pixels réellement itérés
+     * @param wallTime     la durée du rendu en ms
+     * @param busyTime     le temps de calcul cumulé des workers en ms
+     * @param instrumented true si les compteurs détaillés sont remplis
+     * @param iterations   le nombre d'itérations exécutées
+     * @param shortcuts    le nombre de calculs arrêtés avant la limite par rejet ou cycle
+     * @param pixels       le nombre de pixels couverts
+     * @param capped       le nombre de pixels restés à la limite
+     * @param cancelled    le nombre de pixels non parcourus
+     * @param tileTimeMax  la durée de la tuile la plus longue en µs
+     * @param histogram    l'histogramme des pixels sortis, BUCKETS cases
+     * @param workers      le temps de calcul en ms par worker
+     */
+    RenderStatistics(int parallelism, long tiles, long steals, long evaluations, long wallTime, long busyTime,
+                     boolean instrumented, long iterations, long shortcuts, long pixels, long capped,
+                     long cancelled, long tileTimeMax, long[] histogram, Map<String, Long> workers) {
+        this.parallelism = parallelism;
+        this.tiles = tiles;
+        this.steals = steals;
+        this.evaluations = evaluations;
+        this.wallTime = wallTime;
+        this.busyTime = busyTime;
+        this.instrumented = instrumented;
+        this.iterations = iterations;
+        this.shortcuts = shortcuts;
+        this.pixels = pixels;
+        this.capped = capped;
+        this.cancelled = cancelled;
+        this.tileTimeMax = tileTimeMax;
+        this.histogram = histogram;
+        this.workers = Collections.unmodifiableMap(new TreeMap<>(workers));
+    }
+
+    /**
+     * Cumule les statistiques de deux rendus successifs, par exemple les bandes d'une même image
+     *
+     * @param other les statistiques du rendu suivant
+     * @return les statistiques cumulées
+     */
+    public RenderStatistics plus(RenderStatistics other) {
+        long[] h = new long[BUCKETS];
+        for (int k = 0; k < BUCKETS; k++)
+            h[k] = histogram[k] + other.histogram[k];
+        Map<String, Long> w = new TreeMap<>(workers);
+        other.workers.forEach((name, time) -> w.merge(name, time, Long::sum));
+        return new RenderStatistics(Math.max(parallelism, other.parallelism), tiles + other.tiles,
+                steals + other.steals, evaluations + other.evaluations, wallTime + other.wallTime,
+                busyTime + other.busyTime, instrumented && other.instrumented, iterations + other.iterations,
+                shortcuts + other.shortcuts, pixels + other.pixels, capped + other.capped,
+                cancelled + other.cancelled, Math.max(tileTimeMax, other.tileTimeMax), h, w);
+    }
+
+    /**
+     * Getter du nombre de workers
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Getter du nombre de tuiles calculées
+     */
+    public long getTiles() {
+        return tiles;
+    }
+
+    /**
+     * Getter du nombre de vols de tâches
+     */
+    public long getSteals() {
+        return steals;
+    }
+
+    /**
+     * Getter du nombre de pixels itérés, les pixels remplis sans calcul exclus
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Getter de la durée du rendu en ms
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * Temps d'inactivité cumulé des workers en ms
+     *
+     * @return parallélisme * durée - temps de calcul
+     */
+    public long getIdleTime() {
+        return Math.max(0, parallelism * wallTime - busyTime);
+    }
+
+    /**
+     * Indique si les compteurs détaillés sont remplis
+     */
+    public boolean isInstrumented() {
+        return instrumented;
+    }
+
+    /**
+     * Getter du nombre d'itérations exécutées par les unités de calcul, sous-pixels compris
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Getter du nombre de calculs arrêtés avant la limite d'itérations,
+     * par rejet de la cardioïde ou détection de cycle
+     */
+    public long getShortcuts() {
+        return shortcuts;
+    }
+
+    /**
+     * Getter du nombre de pixels de l'image couverts par le rendu
+     */
+    public long getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Getter du nombre de pixels restés à la limite d'itérations, comptés dans l'ensemble
+     */
+    public long getCapped() {
+        return capped;
+    }
+
+    /**
+     * Part des pixels restés à la limite d'itérations
+     *
+     * @return une valeur entre 0 et 1
+     */
+    public double getCappedFraction() {
+        return (pixels == 0) ? 0 : (double) capped / pixels;
+    }
+
+    /**
+     * Getter du nombre de pixels non parcourus à cause d'un arrêt, toutes passes confondues
+     */
+    public long getCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Débit du rendu
+     *
+     * @return les pixels itérés par seconde
+     */
+    public double getPixelsPerSecond() {
+        return evaluations * 1000.0 / Math.max(1, wallTime);
+    }
+
+    /**
+     * Débit des unités de calcul
+     *
+     * @return les itérations exécutées par seconde de calcul cumulé des workers
+     */
+    public double getIterationsPerSecond() {
+        return iterations * 1000.0 / Math.max(1, busyTime);
+    }
+
+    /**
+     * Durée moyenne du calcul d'une tuile
+     *
+     * @return la durée en µs
+     */
+    public long getTileTimeMean() {
+        return (tiles == 0) ? 0 : busyTime * 1000 / tiles;
+    }
+
+    /**
+     * Getter de la durée de la tuile la plus longue en µs
+     */
+    public long getTileTimeMax() {
+        return tileTimeMax;
+    }
+
+    /**
+     * Renvoie l'histogramme des pixels sortis avant la limite : la case 0 compte les
+     * pixels sortis sans itérer, la case k ceux sortis entre 2^(k-1) et 2^k - 1 itérations
+     *
+     * @return une copie de l'histogramme, BUCKETS cases
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Nombre d'itérations sous lequel sortent une part des pixels sortis, à une case près
+     *
+     * @param quantile la part, entre 0 et 1
+     * @return la borne haute de la première case qui atteint la part, 0 sans pixel sorti
+     */
+    public long getEscapeQuantile(double quantile) {
+        return quantile(histogram, quantile);
+    }
+
+    /**
+     * Renvoie la case de l'histogramme d'un nombre d'itérations
+     *
+     * @param n le nombre d'itérations, positif
+     * @return 0 pour 0, sinon k tel que 2^(k-1) <= n < 2^k
+     */
+    static int bucket(int n) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(0, n));
+    }
+
+    /**
+     * Nombre d'itérations sous lequel sortent une part des pixels d'un histogramme, à une case près
+     *
+     * @param histogram l'histogramme, BUCKETS cases
+     * @param quantile  la part, entre 0 et 1
+     * @return la borne haute de la première case qui atteint la part, 0 pour un histogramme vide
+     */
+    static long quantile(long[] histogram, double quantile) {
+        long total = 0;
+        for (long n : histogram)
+            total += n;
+        long seen = 0;
+        for (int k = 0; k < BUCKETS && total > 0; k++) {
+            seen += histogram[k];
+            if (seen >= quantile * total)
+                return 1L << k;
+        }
+        return 0;
+    }
+
+    /**
+     * Getter du temps de calcul en ms par worker, trié par nom de thread
+     */
+    public Map<String, Long> getWorkerTimes() {
+        return workers;
+    }
+
+    @Override
+    public String toString() {
+        String res = "tuiles=" + tiles + " vols=" + steals + " pixels=" + evaluations + " durée=" + wallTime + "ms"
+                + " inactivité=" + getIdleTime() + "ms sur " + parallelism + " workers";
+        if (!instrumented)
+            return res;
+        StringBuilder sb = new StringBuilder(res);
+        sb.append(String.format("%n débit=%.0f pixels/s, %.0f itérations/s", getPixelsPerSecond(),
+                getIterationsPerSecond()));
+        sb.append(String.format("%n itérations=%d raccourcis=%d limite=%d/%d pixels (%.2f%%) annulés=%d",
+                iterations, shortcuts, capped, pixels, 100 * getCappedFraction(), cancelled));
+        sb.append(String.format("%n tuiles : moyenne=%dµs max=%dµs", getTileTimeMean(), tileTimeMax));
+        sb.append(String.format("%n workers :"));
+        workers.forEach((name, time) -> sb.append(' ').append(name).append('=').append(time).append("ms"));
+        sb.append(String.format("%n histogramme des sorties :"));
+        for (int k = 0; k < BUCKETS; k++)
+            if (histogram[k] > 0)
+                sb.append(String.format("%n  < %-10d %d", 1L << k, histogram[k]));
+        return sb.toString();
+    }
+
+}
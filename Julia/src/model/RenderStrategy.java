@@ -0,0 +1,24 @@
+package model;
+
+/**
+ * Stratégies de calcul des tuiles d'une Grid
+ *
+ * @author marais bello
+ */
+public enum RenderStrategy {
+
+    /**
+     * Chaque pixel est calculé
+     */
+    PIXEL,
+
+    /**
+     * Suivi de bords (Mariani-Silver) : seul le bord d'un rectangle est calculé,
+     * le rectangle est rempli si tout son bord a le même nombre d'itérations,
+     * sinon il est coupé en deux et chaque moitié est traitée de la même façon.
+     * Réservé aux ensembles connexes (Mandelbrot, Julia quadratique de constante dans Mandelbrot),
+     * les autres fonctions sont calculées comme avec PIXEL
+     */
+    BORDER
+
+}
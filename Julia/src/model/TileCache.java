@@ -0,0 +1,136 @@
+package model;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cache LRU des tuiles calculées, borné en mémoire
+ * Une tuile est identifiée par l'unité de calcul, le nombre d'itérations,
+ * le zoom, l'origine et ses coordonnées dans l'image
+ *
+ * @author marais bello
+ */
+final class TileCache {
+
+    private static final int ENTRY_OVERHEAD = 96; // Coût estimé d'une entrée hors pixels, en octets
+
+    private final long capacity; // Taille maximale en octets
+    private final LinkedHashMap<Key, int[]> tiles;
+    private long size; // Taille occupée en octets
+
+    /**
+     * Constructeur
+     *
+     * @param capacity la taille maximale du cache en octets
+     */
+    TileCache(long capacity) {
+        this.capacity = capacity;
+        this.tiles = new LinkedHashMap<>(16, 0.75f, true);
+        this.size = 0;
+    }
+
+    /**
+     * Taille en octets d'une tuile
+     *
+     * @param data les pixels de la tuile
+     * @return la taille estimée
+     */
+    private static long weight(int[] data) {
+        return 4L * data.length + ENTRY_OVERHEAD;
+    }
+
+    /**
+     * Renvoie une tuile du cache
+     *
+     * @param key la clé de la tuile
+     * @return les pixels de la tuile, null si absente
+     */
+    synchronized int[] get(Key key) {
+        return tiles.get(key);
+    }
+
+    /**
+     * Ajoute une tuile et retire les moins récemment utilisées si le cache est plein
+     *
+     * @param key  la clé de la tuile
+     * @param data les pixels de la tuile, non copiés
+     */
+    synchronized void put(Key key, int[] data) {
+        if (weight(data) > capacity)
+            return;
+        int[] old = tiles.put(key, data);
+        if (old != null)
+            size -= weight(old);
+        size += weight(data);
+        Iterator<int[]> it = tiles.values().iterator();
+        while (size > capacity && it.hasNext()) {
+            size -= weight(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * Vide le cache
+     */
+    synchronized void clear() {
+        tiles.clear();
+        size = 0;
+    }
+
+    /**
+     * Clé d'une tuile
+     */
+    static final class Key {
+        private final Calculus unit;
+        private final int iteration;
+        private final double zoom;
+        private final BigDecimal real, img;
+        private final int x0, y0, x1, y1;
+
+        /**
+         * Constructeur
+         *
+         * @param unit  l'unité de calcul
+         * @param zoom  le zoom
+         * @param real  la partie réelle de l'origine
+         * @param img   la partie imaginaire de l'origine
+         * @param x0    l'abscisse du coin haut gauche
+         * @param y0    l'ordonnée du coin haut gauche
+         * @param x1    l'abscisse du coin bas droit, exclue
+         * @param y1    l'ordonnée du coin bas droit, exclue
+         */
+        Key(Calculus unit, double zoom, BigDecimal real, BigDecimal img, int x0, int y0, int x1, int y1) {
+            this.unit = unit;
+            this.iteration = unit.getIteration();
+            this.zoom = zoom;
+            this.real = real;
+            this.img = img;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return unit == k.unit && iteration == k.iteration && zoom == k.zoom
+                    && real.compareTo(k.real) == 0 && img.compareTo(k.img) == 0
+                    && x0 == k.x0 && y0 == k.y0 && x1 == k.x1 && y1 == k.y1;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(unit), iteration, zoom,
+                    real.doubleValue(), img.doubleValue(), x0, y0, x1, y1);
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package view;
+
+import model.Grid;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BatchRenderer exporte une liste d'images décrites dans un fichier de travaux,
+ * dans une seule JVM : le démarrage et la compilation JIT ne sont payés qu'une fois.
+ * Chaque ligne du fichier reprend les arguments de la ligne de commandes :
+ * type largeur hauteur origine_x origine_y zoom(%) itérations nom [réel] [img]
+ * Les lignes vides et celles commençant par # sont ignorées.
+ * Les tuiles de tous les travaux sont calculées sur le pool partagé de Grid,
+ * le nombre d'images en cours est borné pour borner la mémoire.
+ *
+ * @author marais bello
+ */
+public final class BatchRenderer {
+
+    private final int inFlight; // Nombre maximum d'images en cours
+    private final Semaphore slots;
+    private final ExecutorService workers;
+    private final AtomicInteger done, failed;
+    private final LongAdder renderTime;
+
+    /**
+     * Constructeur
+     *
+     * @param inFlight le nombre maximum d'images calculées en même temps
+     */
+    public BatchRenderer(int inFlight) {
+        this.inFlight = Math.max(1, inFlight);
+        this.slots = new Semaphore(this.inFlight);
+        this.workers = Executors.newFixedThreadPool(this.inFlight);
+        this.done = new AtomicInteger();
+        this.failed = new AtomicInteger();
+        this.renderTime = new LongAdder();
+    }
+
+    /**
+     * Lance le mode batch depuis les arguments de la ligne de commandes
+     *
+     * @param args batch fichier [images_en_cours]
+     */
+    public static void run(String[] args) {
+        int inFlight = 2;
+        if (args.length > 2) {
+            try {
+                inFlight = Integer.parseInt(args[2]);
+            } catch (NumberFormatException e) {
+                System.out.println("Erreur args : nombre d'images en cours invalide");
+                return;
+            }
+        }
+        try {
+            new BatchRenderer(inFlight).render(new File(args[1]));
+        } catch (IOException e) {
+            System.out.println("Erreur de lecture du fichier de travaux : " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Lit le fichier de travaux et exporte toutes les images
+     * La lecture est bloquée tant que inFlight images sont en cours
+     *
+     * @param jobs le fichier de travaux
+     * @throws IOException          si la lecture échoue
+     * @throws InterruptedException si l'attente est interrompue
+     */
+    public void render(File jobs) throws IOException, InterruptedException {
+        long beg = System.nanoTime();
+        int count = 0;
+        try (BufferedReader in = new BufferedReader(new FileReader(jobs))) {
+            String line;
+            int number = 0;
+            while ((line = in.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                String[] args = line.split("\\s+");
+                int job = number;
+                slots.acquire();
+                count++;
+                workers.execute(() -> {
+                    try {
+                        renderJob(job, args);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        long total = (System.nanoTime() - beg) / 1_000_000;
+        System.out.println("== " + done.get() + "/" + count + " images en " + total + "ms, "
+                + failed.get() + " erreurs, calcul moyen "
+                + ((done.get() == 0) ? 0 : renderTime.sum() / done.get()) + "ms ==");
+    }
+
+    /**
+     * Exporte une image et affiche sa durée
+     * Une erreur, même imprévue, compte le travail en échec sans arrêter les autres
+     *
+     * @param job  le numéro de ligne du travail
+     * @param args la description de l'image
+     */
+    private void renderJob(int job, String[] args) {
+        try {
+            Grid g = ImageSaver.makeGrid(args);
+            if (g == null) {
+                failed.incrementAndGet();
+                System.out.println("Ligne " + job + " : ignorée");
+                return;
+            }
+            File out = new File("save/" + args[7] + ".png");
+            long beg = System.nanoTime();
+            ImageSaver.writePng(g, out);
+            long time = (System.nanoTime() - beg) / 1_000_000;
+            renderTime.add(time);
+            done.incrementAndGet();
+            System.out.println("Ligne " + job + " : " + out.getPath() + " " + g.getWidth() + "x" + g.getHeight()
+                    + " -> " + time + "ms");
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            System.out.println("Ligne " + job + " : erreur d'écriture " + e.getMessage());
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            System.out.println("Ligne " + job + " : erreur " + e);
+        }
+    }
+
+}
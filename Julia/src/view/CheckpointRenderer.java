@@ -0,0 +1,143 @@
+package view;
+
+import model.Grid;
+import model.IterationBuffer;
+import model.IterationFile;
+import model.Palette;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * CheckpointRenderer calcule des images plus grandes que la mémoire : les itérations
+ * sont écrites bande par bande dans un fichier projeté en mémoire (IterationFile),
+ * avec un point de reprise régulier. Relancer la même commande après une interruption
+ * reprend le calcul aux bandes manquantes. Le png final est écrit en lisant le fichier
+ * bande par bande, l'image n'est jamais entièrement en mémoire.
+ *
+ * @author marais bello
+ */
+public final class CheckpointRenderer {
+
+    private static final int BAND_PIXELS = 1 << 22; // Pixels par bande du fichier d'itérations
+    private static final long CHECKPOINT_INTERVAL = 10_000; // Délai entre deux points de reprise en ms
+
+    private CheckpointRenderer() {
+    }
+
+    /**
+     * Lance ou reprend un rendu depuis les arguments de la ligne de commandes
+     * Les itérations sont gardées dans "save/nom.iter", l'image est exportée dans "save/nom.png"
+     *
+     * @param args checkpoint type largeur hauteur origine_x origine_y zoom(%) itérations nom [réel] [img]
+     */
+    public static void run(String[] args) {
+        String[] image = Arrays.copyOfRange(args, 1, args.length);
+        Grid g = ImageSaver.makeGrid(image);
+        if (g == null)
+            return;
+        File iter = new File("save/" + image[7] + ".iter");
+        File out = new File("save/" + image[7] + ".png");
+        try {
+            if (render(g, iter, String.join(" ", image))) {
+                try (IterationFile data = open(g, iter, String.join(" ", image))) {
+                    writePng(data, Palette.CLASSIQUE, out);
+                }
+                System.out.println("Fichier sauvegarder dans : " + out.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            System.out.println("Erreur du rendu : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ouvre le fichier d'itérations d'une grille
+     *
+     * @param g           la grille
+     * @param iter        le fichier
+     * @param description la description de l'image
+     * @return le fichier ouvert
+     * @throws IOException si le fichier ne peut pas être ouvert ou décrit une autre image
+     */
+    private static IterationFile open(Grid g, File iter, String description) throws IOException {
+        int bandHeight = Math.max(1, Math.min(g.getHeight(), BAND_PIXELS / g.getWidth()));
+        return IterationFile.open(iter, g.getWidth(), g.getHeight(), g.getMaxIteration(), bandHeight, description);
+    }
+
+    /**
+     * Calcule les bandes manquantes du fichier d'itérations
+     * Un arrêt de la JVM (Ctrl-C, kill) arrête le calcul et pose un dernier point de reprise
+     *
+     * @param g           la grille à calculer
+     * @param iter        le fichier d'itérations, créé ou repris
+     * @param description la description de l'image
+     * @return true si toutes les bandes sont calculées
+     * @throws IOException si le fichier ne peut pas être écrit
+     */
+    static boolean render(Grid g, File iter, String description) throws IOException {
+        // Le fichier est aussi fermé par le hook d'arrêt, il est donc tenu hors d'un try-with-resources
+        IterationFile data = open(g, iter, description);
+        try {
+            int total = data.getBands(), left = data.remaining();
+            if (left < total)
+                System.out.println("Reprise : " + (total - left) + " bandes sur " + total + " déjà calculées");
+            Thread hook = new Thread(() -> {
+                g.stop();
+                try {
+                    data.close();
+                } catch (IOException e) {
+                    System.out.println("Erreur du point de reprise : " + e.getMessage());
+                }
+            });
+            Runtime.getRuntime().addShutdownHook(hook);
+            long beg = System.nanoTime(), last = beg;
+            for (int b = 0; b < total; b++) {
+                if (data.isDone(b))
+                    continue;
+                IterationBuffer rows = g.renderIterations(0, data.bandStart(b), g.getWidth(), data.bandEnd(b));
+                if (rows == null)
+                    return false; // Rendu arrêté par le hook, qui pose le dernier point de reprise
+                data.write(b, rows);
+                left--;
+                if (System.nanoTime() - last > CHECKPOINT_INTERVAL * 1_000_000) {
+                    data.checkpoint();
+                    last = System.nanoTime();
+                    System.out.println("Point de reprise : " + (total - left) + "/" + total + " bandes -> "
+                            + (last - beg) / 1_000_000 + "ms");
+                }
+            }
+            data.checkpoint();
+            Runtime.getRuntime().removeShutdownHook(hook);
+            return left == 0;
+        } finally {
+            data.close();
+        }
+    }
+
+    /**
+     * Colore un fichier d'itérations complet et l'écrit dans un fichier png, bande par bande
+     *
+     * @param data    les itérations
+     * @param palette la palette
+     * @param out     le fichier de sortie, ses répertoires sont créés
+     * @throws IOException si la lecture ou l'écriture échoue
+     */
+    static void writePng(IterationFile data, Palette palette, File out) throws IOException {
+        int width = data.getWidth(), height = data.getHeight();
+        int strip = Math.max(1, Math.min(height, BAND_PIXELS / width));
+        int[] buffer = new int[strip * width];
+        if (out.getParentFile() != null)
+            out.getParentFile().mkdirs();
+        try (PngWriter png = new PngWriter(new BufferedOutputStream(new FileOutputStream(out)), width, height)) {
+            for (int from = 0; from < height; from += strip) {
+                int to = Math.min(height, from + strip);
+                data.colorizeRows(palette, from, to, buffer);
+                png.writeRows(buffer, to - from);
+            }
+        }
+    }
+
+}
@@ -3,10 +3,14 @@ package view;
 import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.image.Image;
 import model.Grid;
+import model.RenderStatistics;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 
 /**
  * ImageSaver est une classe permettant de sauvegarder une image
@@ -16,6 +20,8 @@ import java.io.File;
  */
 public final class ImageSaver {
 
+    private static final int STRIP_PIXELS = 1 << 20; // Pixels par bande lors de l'export
+
     /**
      * Convertit une chaine en int
      *
@@ -45,27 +51,59 @@ public final class ImageSaver {
     }
 
     /**
-     * Fait le rendu de l'imahe
+     * Construit la grille décrite par des arguments de la ligne de commande,
+     * zoom et origine appliqués
+     *
+     * @param args les arguments : type largeur hauteur origine_x origine_y zoom(%) itérations nom [réel] [img]
+     * @return la grille, null si les arguments sont invalides
+     */
+    static Grid makeGrid(String[] args) {
+        return makeGrid(args, false, 1);
+    }
+
+    /**
+     * Construit la grille décrite par des arguments de la ligne de commande,
+     * zoom et origine appliqués
      *
-     * @param build le builder de base
-     * @param coord les différents double de références
-     * @param type  le type julia / mandelbrot
-     * @param name  le nom du fichier
+     * Le nombre d'itérations "auto" choisit la limite d'après la vue, voir GridBuilder.autoIteration
+     *
+     * @param args    les arguments : type largeur hauteur origine_x origine_y zoom(%) itérations nom [réel] [img]
+     * @param stats   true pour instrumenter les rendus de la grille
+     * @param samples le côté de la grille de sous-pixels de l'anticrénelage, 1 pour le désactiver
+     * @return la grille, null si les arguments sont invalides
      */
-    private static void renderImage(Grid.GridBuilder build, double[] coord, String type, String name) {
-        if (type.equals("julia")) {
+    static Grid makeGrid(String[] args, boolean stats, int samples) {
+        boolean julia = args[0].equals("julia");
+        if (!julia && !args[0].equals("mandelbrot")) {
+            System.out.println("Erreur de type : julia ou mandelbrot");
+            return null;
+        }
+        if (args.length != (julia ? 10 : 8)) {
+            System.out.println("Erreur args");
+            return null;
+        }
+        boolean auto = args[6].equals("auto");
+        int x = convertInt(args[1]), y = convertInt(args[2]), iteration = auto ? 100 : convertInt(args[6]);
+        double zoom = convertDouble(args[5]);
+        if (iteration == -1 || x == -1 || y == -1 || zoom == 0 || samples < 1) {
+            System.out.println("Erreur args");
+            return null;
+        }
+        // Une image exportée n'est calculée qu'une fois, le cache de tuiles est inutile
+        Grid.GridBuilder build = Grid.builder().iteration(iteration).size(x, y).cacheSize(0)
+                .supersampling(samples).instrument(stats).autoIteration(auto);
+        if (julia) {
             double[] coeff = {0.0, 0.0, 1.0};
-            build.function(coeff, coord[3], coord[4]);
-        } else if (type.equals("mandelbrot"))
+            build.function(coeff, convertDouble(args[8]), convertDouble(args[9]));
+        } else {
             build.mandelbrot();
-        else {
-            System.out.println("Erreur de type : julia ou mandelbrot");
-            return;
         }
         Grid g = build.build();
-        g.imageZoom(coord[2]);
-        g.moveOrigin(coord[0], coord[1]);
-        saveImage(g.renderSceneMultiThreads(), name);
+        g.imageZoom(zoom);
+        g.moveOrigin(convertDouble(args[3]), convertDouble(args[4]));
+        if (auto)
+            System.out.println("Itérations choisies : " + g.tuneIteration());
+        return g;
     }
 
     /**
@@ -74,27 +112,20 @@ public final class ImageSaver {
      * @param args les arguments
      */
     public static void generateImageFromArgs(String args[]) {
-        int x = convertInt(args[1]), y = convertInt(args[2]), iteration = convertInt(args[6]);
-        double[] coord;
-        if (args[0].equals("julia")) {
-            coord = new double[5];
-            coord[0] = convertDouble(args[3]);
-            coord[1] = convertDouble(args[4]);
-            coord[2] = convertDouble(args[5]);
-            coord[3] = convertDouble(args[8]);
-            coord[4] = convertDouble(args[9]);
-        } else {
-            coord = new double[3];
-            coord[0] = convertDouble(args[3]);
-            coord[1] = convertDouble(args[4]);
-            coord[2] = convertDouble(args[5]);
-        }
-        if (iteration == -1 || x == -1 || y == -1 || coord[2] == 0) {
-            System.out.println("Erreur args");
-            return;
-        }
-        Grid.GridBuilder build = Grid.builder().iteration(iteration).size(x, y);
-        renderImage(build, coord, args[0], args[7]);
+        generateImageFromArgs(args, false, 1);
+    }
+
+    /**
+     * Génère une image grâce aux arguments
+     *
+     * @param args    les arguments
+     * @param stats   true pour afficher les statistiques détaillées du rendu
+     * @param samples le côté de la grille de sous-pixels de l'anticrénelage, 1 pour le désactiver
+     */
+    public static void generateImageFromArgs(String args[], boolean stats, int samples) {
+        Grid g = makeGrid(args, stats, samples);
+        if (g != null)
+            exportImage(g, args[7], stats);
     }
 
     /**
@@ -114,4 +145,63 @@ public final class ImageSaver {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Calcule et exporte l'image bande par bande dans le répertoire "Projet_Julia/save/"
+     * sans passer par une image JavaFX : seule une bande de lignes est en mémoire
+     *
+     * @param g    la grille à calculer
+     * @param name nom de l'image
+     */
+    public static void exportImage(Grid g, String name) {
+        exportImage(g, name, false);
+    }
+
+    /**
+     * Calcule et exporte l'image bande par bande dans le répertoire "Projet_Julia/save/"
+     * sans passer par une image JavaFX : seule une bande de lignes est en mémoire
+     *
+     * @param g     la grille à calculer
+     * @param name  nom de l'image
+     * @param stats true pour afficher les statistiques cumulées des bandes
+     */
+    public static void exportImage(Grid g, String name, boolean stats) {
+        File out = new File("save/" + name + ".png");
+        try {
+            RenderStatistics s = writePng(g, out);
+            System.out.println("Fichier sauvegarder dans : " + out.getAbsolutePath());
+            if (stats && s != null)
+                System.out.println("Statistiques : " + s);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Calcule la grille bande par bande et l'écrit dans un fichier png
+     *
+     * @param g   la grille à calculer
+     * @param out le fichier de sortie, ses répertoires sont créés
+     * @return les statistiques cumulées des bandes, null pour une image vide
+     * @throws IOException si l'écriture échoue ou si le rendu d'une bande est refusé
+     */
+    static RenderStatistics writePng(Grid g, File out) throws IOException {
+        int width = g.getWidth(), height = g.getHeight();
+        int strip = Math.max(1, Math.min(height, STRIP_PIXELS / width));
+        int[] buffer = new int[strip * width];
+        RenderStatistics total = null;
+        if (out.getParentFile() != null)
+            out.getParentFile().mkdirs();
+        try (PngWriter png = new PngWriter(new BufferedOutputStream(new FileOutputStream(out)), width, height)) {
+            for (int from = 0; from < height; from += strip) {
+                int to = Math.min(height, from + strip);
+                if (!g.renderRows(from, to, buffer))
+                    throw new IOException("Rendu interrompu à la ligne " + from);
+                png.writeRows(buffer, to - from);
+                RenderStatistics s = g.getStatistics();
+                total = (total == null) ? s : total.plus(s);
+            }
+        }
+        return total;
+    }
 }
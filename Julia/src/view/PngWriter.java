@@ -0,0 +1,186 @@
+package view;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * PngWriter écrit une image png ligne par ligne dans un flux,
+ * sans jamais garder l'image entière en mémoire
+ *
+ * @author marais bello
+ */
+public final class PngWriter implements AutoCloseable {
+
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    private static final int CHUNK_SIZE = 1 << 16; // Taille maximale d'un chunk IDAT
+
+    private final OutputStream out;
+    private final int width;
+    private final int height;
+    private final Deflater deflater;
+    private final DeflaterOutputStream data;
+    private final byte[] line; // Ligne filtrée : octet de filtre + RGB
+    private int rows; // Nombre de lignes écrites
+
+    /**
+     * Constructeur, écrit l'entête du fichier
+     *
+     * @param out    le flux de sortie
+     * @param width  la largeur de l'image
+     * @param height la hauteur de l'image
+     * @throws IOException si l'écriture échoue
+     */
+    public PngWriter(OutputStream out, int width, int height) throws IOException {
+        this(out, width, height, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructeur avec niveau de compression, écrit l'entête du fichier
+     *
+     * @param out    le flux de sortie
+     * @param width  la largeur de l'image
+     * @param height la hauteur de l'image
+     * @param level  le niveau de compression, de Deflater.BEST_SPEED à Deflater.BEST_COMPRESSION
+     * @throws IOException si l'écriture échoue
+     */
+    public PngWriter(OutputStream out, int width, int height, int level) throws IOException {
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.line = new byte[1 + 3 * width];
+        this.rows = 0;
+        out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        header[8] = 8; // 8 bits par canal
+        header[9] = 2; // RGB
+        writeChunk("IHDR", header, header.length);
+        this.deflater = new Deflater(level);
+        this.data = new DeflaterOutputStream(new IdatStream(), deflater, CHUNK_SIZE);
+    }
+
+    /**
+     * Écrit un entier big endian dans un tableau
+     *
+     * @param b      le tableau
+     * @param offset la position
+     * @param value  l'entier
+     */
+    private static void writeInt(byte[] b, int offset, int value) {
+        b[offset] = (byte) (value >>> 24);
+        b[offset + 1] = (byte) (value >>> 16);
+        b[offset + 2] = (byte) (value >>> 8);
+        b[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Écrit un chunk png complet : taille, type, données et CRC
+     *
+     * @param type   le type du chunk
+     * @param buffer les données
+     * @param length la taille des données
+     * @throws IOException si l'écriture échoue
+     */
+    private void writeChunk(String type, byte[] buffer, int length) throws IOException {
+        byte[] tmp = new byte[4];
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(buffer, 0, length);
+        writeInt(tmp, 0, length);
+        out.write(tmp);
+        out.write(name);
+        out.write(buffer, 0, length);
+        writeInt(tmp, 0, (int) crc.getValue());
+        out.write(tmp);
+    }
+
+    /**
+     * Écrit des lignes de pixels à la suite de l'image
+     *
+     * @param pixels le buffer ARGB, ligne par ligne
+     * @param count  le nombre de lignes du buffer à écrire
+     * @throws IOException si l'écriture échoue ou si l'image est déjà complète
+     */
+    public void writeRows(int[] pixels, int count) throws IOException {
+        if (rows + count > height)
+            throw new IOException("Trop de lignes pour l'image");
+        for (int r = 0; r < count; r++) {
+            line[0] = 1; // Filtre Sub : différence avec le pixel de gauche
+            int prevR = 0, prevG = 0, prevB = 0;
+            for (int j = 0, k = 1; j < width; j++, k += 3) {
+                int argb = pixels[r * width + j];
+                int red = (argb >> 16) & 0xFF, green = (argb >> 8) & 0xFF, blue = argb & 0xFF;
+                line[k] = (byte) (red - prevR);
+                line[k + 1] = (byte) (green - prevG);
+                line[k + 2] = (byte) (blue - prevB);
+                prevR = red;
+                prevG = green;
+                prevB = blue;
+            }
+            data.write(line);
+        }
+        rows += count;
+    }
+
+    /**
+     * Termine l'image et écrit la fin du fichier
+     *
+     * @throws IOException si l'écriture échoue ou si l'image est incomplète
+     */
+    @Override
+    public void close() throws IOException {
+        data.close();
+        deflater.end();
+        writeChunk("IEND", new byte[0], 0);
+        out.close();
+        if (rows != height)
+            throw new IOException("Image incomplète : " + rows + "/" + height + " lignes");
+    }
+
+    /**
+     * Flux découpant les données compressées en chunks IDAT
+     */
+    private final class IdatStream extends OutputStream {
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int size = 0;
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer[size++] = (byte) b;
+            if (size == buffer.length)
+                flush();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, buffer.length - size);
+                System.arraycopy(b, off, buffer, size, n);
+                size += n;
+                off += n;
+                len -= n;
+                if (size == buffer.length)
+                    flush();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (size > 0)
+                writeChunk("IDAT", buffer, size);
+            size = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+}
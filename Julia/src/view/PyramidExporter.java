@@ -0,0 +1,296 @@
+package view;
+
+import model.Grid;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * PyramidExporter exporte une image en pyramide de tuiles de TILE x TILE pixels
+ * pour les visionneuses web (format Deep Zoom : nom.dzi et nom_files/niveau/colonne_ligne.png).
+ * Seul le niveau le plus fin est calculé par la grille, bande de TILE lignes par bande de
+ * TILE lignes. Chaque niveau plus grossier est obtenu en moyennant les pixels 2 x 2 du
+ * niveau au-dessus : un niveau garde seulement la rangée de tuiles en cours, la mémoire
+ * dépend de la largeur de l'image et pas de sa hauteur. Les tuiles d'une rangée sont
+ * réduites et encodées en parallèle, puis écrites dès qu'elles sont prêtes.
+ * Les tuiles déjà présentes ne sont pas réécrites, et une bande dont toutes les tuiles
+ * sont présentes à tous les niveaux n'est pas recalculée : relancer un export interrompu
+ * le reprend.
+ *
+ * @author marais bello
+ */
+public final class PyramidExporter {
+
+    static final int TILE = 256; // Côté des tuiles
+
+    private final Grid grid;
+    private final File tiles; // Répertoire des niveaux
+    private final int top; // Niveau le plus fin, en pleine résolution
+    private final Level[] levels; // Niveaux en cours d'écriture, indicés par leur numéro
+    private int written, skipped; // Tuiles écrites et déjà présentes
+
+    /**
+     * Constructeur
+     *
+     * @param grid  la grille à exporter
+     * @param tiles le répertoire des niveaux, nom_files
+     */
+    public PyramidExporter(Grid grid, File tiles) {
+        this.grid = grid;
+        this.tiles = tiles;
+        int size = Math.max(grid.getWidth(), grid.getHeight()), top = 0;
+        while ((1L << top) < size)
+            top++;
+        this.top = top;
+        this.levels = new Level[top + 1];
+        for (int l = 0; l <= top; l++)
+            levels[l] = new Level(l, scale(grid.getWidth(), top - l), scale(grid.getHeight(), top - l));
+    }
+
+    /**
+     * Lance l'export depuis les arguments de la ligne de commandes
+     * La pyramide est écrite dans "save/nom.dzi" et "save/nom_files/"
+     *
+     * @param args pyramid type largeur hauteur origine_x origine_y zoom(%) itérations nom [réel] [img]
+     */
+    public static void run(String[] args) {
+        String[] image = Arrays.copyOfRange(args, 1, args.length);
+        Grid g = ImageSaver.makeGrid(image);
+        if (g == null)
+            return;
+        File dzi = new File("save/" + image[7] + ".dzi");
+        try {
+            long beg = System.nanoTime();
+            PyramidExporter exporter = new PyramidExporter(g, new File("save/" + image[7] + "_files"));
+            exporter.export();
+            exporter.writeDescriptor(dzi);
+            System.out.println("Pyramide sauvegardée dans : " + dzi.getAbsolutePath() + " -> "
+                    + exporter.written + " tuiles écrites, " + exporter.skipped + " déjà présentes, "
+                    + (System.nanoTime() - beg) / 1_000_000 + "ms");
+        } catch (IOException e) {
+            System.out.println("Erreur de l'export : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Taille d'un côté réduit k fois de moitié, arrondie au-dessus
+     *
+     * @param size la taille en pleine résolution
+     * @param k    le nombre de réductions
+     * @return la taille réduite, au moins 1
+     */
+    private static int scale(int size, int k) {
+        return (int) Math.max(1, (size + (1L << k) - 1) >> k);
+    }
+
+    /**
+     * Calcule le niveau le plus fin bande par bande et en déduit tous les autres
+     *
+     * @throws IOException si une tuile ne peut pas être écrite ou si le rendu est interrompu
+     */
+    public void export() throws IOException {
+        int width = grid.getWidth(), height = grid.getHeight();
+        int[] band = new int[width * TILE];
+        for (int row = 0; row * TILE < height; row++) {
+            int from = row * TILE, to = Math.min(height, from + TILE);
+            if (present(row)) {
+                // Les tuiles qui dépendent de cette bande existent toutes : son contenu ne sera pas lu
+                levels[top].push(null, to - from);
+                continue;
+            }
+            if (!grid.renderRows(from, to, band))
+                throw new IOException("Rendu interrompu à la ligne " + from);
+            levels[top].push(band, to - from);
+        }
+    }
+
+    /**
+     * Indique si toutes les tuiles qui dépendent d'une bande du niveau le plus fin existent
+     *
+     * @param row la rangée de tuiles du niveau le plus fin
+     * @return true si la bande n'a pas à être calculée
+     */
+    private boolean present(int row) {
+        for (int l = top; l >= 0; l--)
+            for (int col = 0; col < levels[l].columns; col++)
+                if (!tile(l, col, row >> (top - l)).isFile())
+                    return false;
+        return true;
+    }
+
+    /**
+     * Renvoie le fichier d'une tuile
+     *
+     * @param level le niveau
+     * @param col   la colonne de la tuile
+     * @param row   la rangée de la tuile
+     * @return le fichier
+     */
+    private File tile(int level, int col, int row) {
+        return new File(tiles, level + File.separator + col + "_" + row + ".png");
+    }
+
+    /**
+     * Écrit le descripteur Deep Zoom de la pyramide
+     *
+     * @param dzi le fichier .dzi
+     * @throws IOException si l'écriture échoue
+     */
+    public void writeDescriptor(File dzi) throws IOException {
+        try (PrintWriter out = new PrintWriter(dzi, "UTF-8")) {
+            out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            out.println("<Image xmlns=\"http://schemas.microsoft.com/deepzoom/2008\" TileSize=\"" + TILE
+                    + "\" Overlap=\"0\" Format=\"png\">");
+            out.println("  <Size Width=\"" + grid.getWidth() + "\" Height=\"" + grid.getHeight() + "\"/>");
+            out.println("</Image>");
+        }
+    }
+
+    /**
+     * Niveau de la pyramide : accumule les lignes reçues du niveau au-dessus
+     * jusqu'à former une rangée de tuiles, l'écrit puis la transmet réduite au niveau en dessous
+     */
+    private final class Level {
+        private final int level;
+        private final int width, height; // Taille de l'image à ce niveau
+        private final int columns; // Nombre de tuiles par rangée
+        private final int[] rows; // Rangée de tuiles en cours, TILE lignes de width pixels
+        private int filled; // Lignes reçues dans la rangée en cours
+        private boolean computed; // La rangée en cours contient des lignes calculées
+        private int row; // Numéro de la rangée en cours
+
+        private Level(int level, int width, int height) {
+            this.level = level;
+            this.width = width;
+            this.height = height;
+            this.columns = (width + TILE - 1) / TILE;
+            this.rows = new int[width * Math.min(TILE, height)];
+        }
+
+        /**
+         * Ajoute des lignes à la rangée en cours, l'écrit et la réduit si elle est complète
+         *
+         * @param src   les lignes, de width pixels ; null pour des lignes dont les tuiles existent déjà
+         * @param count le nombre de lignes
+         * @throws IOException si une tuile ne peut pas être écrite
+         */
+        private void push(int[] src, int count) throws IOException {
+            if (src != null) {
+                System.arraycopy(src, 0, rows, filled * width, count * width);
+                computed = true;
+            }
+            filled += count;
+            if (filled < TILE && row * TILE + filled < height)
+                return;
+            // Une rangée sans ligne calculée n'a que des tuiles présentes, à ce niveau comme en dessous
+            if (computed)
+                emit();
+            if (level > 0) {
+                int half = (filled + 1) / 2;
+                levels[level - 1].push(computed ? shrink(half) : null, half);
+            }
+            filled = 0;
+            computed = false;
+            row++;
+        }
+
+        /**
+         * Écrit en parallèle les tuiles absentes de la rangée en cours
+         *
+         * @throws IOException si une tuile ne peut pas être écrite
+         */
+        private void emit() throws IOException {
+            int[] count = new int[2];
+            try {
+                IntStream.range(0, columns).parallel().forEach((col) -> {
+                    File f = tile(level, col, row);
+                    if (f.isFile()) {
+                        synchronized (count) {
+                            count[1]++;
+                        }
+                        return;
+                    }
+                    try {
+                        write(f, col);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    synchronized (count) {
+                        count[0]++;
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            written += count[0];
+            skipped += count[1];
+        }
+
+        /**
+         * Écrit une tuile dans un fichier temporaire renommé à la fin,
+         * une tuile interrompue n'est donc jamais prise pour une tuile présente
+         *
+         * @param f   le fichier de la tuile
+         * @param col la colonne de la tuile
+         * @throws IOException si l'écriture échoue
+         */
+        private void write(File f, int col) throws IOException {
+            int x0 = col * TILE, w = Math.min(TILE, width - x0);
+            int[] pixels = new int[w * filled];
+            for (int i = 0; i < filled; i++)
+                System.arraycopy(rows, i * width + x0, pixels, i * w, w);
+            f.getParentFile().mkdirs();
+            File tmp = new File(f.getParentFile(), f.getName() + ".part");
+            try (PngWriter png = new PngWriter(new BufferedOutputStream(new FileOutputStream(tmp)), w, filled)) {
+                png.writeRows(pixels, filled);
+            }
+            Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        /**
+         * Réduit la rangée en cours de moitié, chaque pixel est la moyenne
+         * des pixels 2 x 2 qu'il couvre (moins sur les bords impairs)
+         *
+         * @param half le nombre de lignes réduites
+         * @return les lignes réduites, de la largeur du niveau en dessous
+         */
+        private int[] shrink(int half) {
+            int w = levels[level - 1].width;
+            int[] dst = new int[w * half];
+            IntStream.range(0, half).parallel().forEach((i) -> {
+                int y0 = 2 * i, y1 = Math.min(filled - 1, y0 + 1);
+                for (int j = 0; j < w; j++) {
+                    int x0 = 2 * j, x1 = Math.min(width - 1, x0 + 1);
+                    int a = rows[y0 * width + x0], b = rows[y0 * width + x1];
+                    int c = rows[y1 * width + x0], d = rows[y1 * width + x1];
+                    dst[i * w + j] = 0xFF000000 | average(a, b, c, d, 16) << 16
+                            | average(a, b, c, d, 8) << 8 | average(a, b, c, d, 0);
+                }
+            });
+            return dst;
+        }
+    }
+
+    /**
+     * Moyenne arrondie d'un canal de quatre couleurs ARGB
+     *
+     * @param a     la première couleur
+     * @param b     la deuxième couleur
+     * @param c     la troisième couleur
+     * @param d     la quatrième couleur
+     * @param shift la position du canal
+     * @return le canal moyen, sur 8 bits
+     */
+    private static int average(int a, int b, int c, int d, int shift) {
+        return (((a >> shift) & 0xFF) + ((b >> shift) & 0xFF) + ((c >> shift) & 0xFF) + ((d >> shift) & 0xFF) + 2) >> 2;
+    }
+
+}
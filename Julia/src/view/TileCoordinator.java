@@ -0,0 +1,227 @@
+package view;
+
+import model.Grid;
+import model.IterationBuffer;
+import model.Palette;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TileCoordinator répartit le calcul d'une image entre plusieurs TileWorker,
+ * sur la même machine ou sur d'autres, pour dépasser le nombre de coeurs d'une JVM.
+ * L'image est découpée en tuiles placées dans une file ; chaque worker prend la
+ * tuile suivante dès qu'il a rendu la précédente, les workers rapides en calculent
+ * donc davantage. Une tuile dont le worker meurt est remise en tête de file et
+ * reprise par un autre. Les tuiles reçues sont recollées dans un IterationBuffer.
+ *
+ * @author marais bello
+ */
+public final class TileCoordinator {
+
+    private static final int CONNECT_TIMEOUT = 5_000; // Délai de connexion à un worker en ms
+    // Délai sans nouvelles d'un worker en ms ; un worker qui calcule envoie TileWorker.KEEP_ALIVE
+    private static final int SILENCE_TIMEOUT = 6 * TileWorker.KEEP_ALIVE_PERIOD;
+
+    private final List<InetSocketAddress> workers;
+    private final int tileSize;
+
+    /**
+     * Constructeur
+     *
+     * @param workers  les adresses des workers
+     * @param tileSize le côté des tuiles envoyées
+     */
+    public TileCoordinator(List<InetSocketAddress> workers, int tileSize) {
+        this.workers = new ArrayList<>(workers);
+        this.tileSize = Math.max(16, tileSize);
+    }
+
+    /**
+     * Lance le rendu distribué depuis les arguments de la ligne de commandes
+     * L'image est exportée en png dans le répertoire "save/"
+     *
+     * @param args coordinator hôte:port[,hôte:port...] type largeur hauteur origine_x origine_y zoom(%) itérations nom [réel] [img]
+     */
+    public static void run(String[] args) {
+        List<InetSocketAddress> workers = new ArrayList<>();
+        try {
+            for (String w : args[1].split(",")) {
+                int colon = w.lastIndexOf(':');
+                workers.add(new InetSocketAddress(w.substring(0, colon), Integer.parseInt(w.substring(colon + 1))));
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Erreur args : workers attendus sous la forme hôte:port,hôte:port");
+            return;
+        }
+        String[] image = Arrays.copyOfRange(args, 2, args.length);
+        Grid g = ImageSaver.makeGrid(image);
+        if (g == null)
+            return;
+        File out = new File("save/" + image[7] + ".png");
+        try {
+            long beg = System.nanoTime();
+            IterationBuffer buffer = new TileCoordinator(workers, 256).render(g, image);
+            long time = (System.nanoTime() - beg) / 1_000_000;
+            writePng(buffer, Palette.CLASSIQUE, out);
+            System.out.println("Fichier sauvegarder dans : " + out.getAbsolutePath() + " -> " + time + "ms");
+        } catch (IOException e) {
+            System.out.println("Erreur du rendu distribué : " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Colore un buffer d'itérations et l'écrit dans un fichier png
+     *
+     * @param buffer  les itérations
+     * @param palette la palette
+     * @param out     le fichier de sortie, ses répertoires sont créés
+     * @throws IOException si l'écriture échoue
+     */
+    static void writePng(IterationBuffer buffer, Palette palette, File out) throws IOException {
+        if (out.getParentFile() != null)
+            out.getParentFile().mkdirs();
+        try (PngWriter png = new PngWriter(new BufferedOutputStream(new FileOutputStream(out)),
+                buffer.getWidth(), buffer.getHeight())) {
+            png.writeRows(buffer.toArgb(palette), buffer.getHeight());
+        }
+    }
+
+    /**
+     * Calcule une image sur les workers
+     * Chaque worker construit sa propre grille depuis args ; celle du coordinateur
+     * donne seulement la taille de l'image et sa limite d'itérations
+     *
+     * @param g    la grille décrite par args, construite par ImageSaver.makeGrid
+     * @param args la description de l'image : type largeur hauteur origine_x origine_y zoom(%) itérations nom [réel] [img]
+     * @return les itérations de l'image entière
+     * @throws IOException          si tous les workers sont perdus avant la fin
+     * @throws InterruptedException si l'attente est interrompue
+     */
+    public IterationBuffer render(Grid g, String[] args) throws IOException, InterruptedException {
+        int width = g.getWidth(), height = g.getHeight();
+        IterationBuffer result = new IterationBuffer(width, height, g.getMaxIteration());
+        BlockingDeque<int[]> tiles = new LinkedBlockingDeque<>();
+        for (int y = 0; y < height; y += tileSize)
+            for (int x = 0; x < width; x += tileSize)
+                tiles.add(new int[]{x, y, Math.min(width, x + tileSize), Math.min(height, y + tileSize)});
+        CountDownLatch remaining = new CountDownLatch(tiles.size());
+        AtomicInteger alive = new AtomicInteger(workers.size());
+        List<Thread> threads = new ArrayList<>();
+        for (InetSocketAddress address : workers) {
+            Thread t = new Thread(() -> {
+                try {
+                    serve(address, args, tiles, remaining, result);
+                } finally {
+                    alive.decrementAndGet();
+                }
+            }, "tile-coordinator");
+            t.setDaemon(true);
+            t.start();
+            threads.add(t);
+        }
+        // Les tuiles restantes ne peuvent plus être calculées si tous les workers sont perdus
+        while (!remaining.await(100, TimeUnit.MILLISECONDS)) {
+            if (alive.get() == 0)
+                throw new IOException(remaining.getCount() + " tuiles non calculées, plus aucun worker");
+        }
+        for (Thread t : threads)
+            t.join();
+        return result;
+    }
+
+    /**
+     * Envoie des tuiles à un worker jusqu'à ce qu'il n'en reste plus
+     * Si la connexion est perdue, la tuile en cours est remise en tête de file
+     *
+     * @param address   l'adresse du worker
+     * @param args      la description de l'image
+     * @param tiles     la file des tuiles à calculer
+     * @param remaining le nombre de tuiles non recollées
+     * @param result    le buffer de l'image entière
+     */
+    private void serve(InetSocketAddress address, String[] args, BlockingDeque<int[]> tiles,
+                       CountDownLatch remaining, IterationBuffer result) {
+        int done = 0;
+        int[] tile = null;
+        try (Socket s = new Socket()) {
+            s.connect(address, CONNECT_TIMEOUT);
+            s.setSoTimeout(SILENCE_TIMEOUT);
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            out.writeInt(TileWorker.MAGIC);
+            out.writeInt(args.length);
+            for (String a : args)
+                out.writeUTF(a);
+            out.flush();
+            if (reply(in) != 1)
+                throw new IOException("image refusée");
+            // Une tuile remise en file par un worker perdu peut encore arriver tant que tout n'est pas recollé
+            while (remaining.getCount() > 0) {
+                tile = tiles.poll(100, TimeUnit.MILLISECONDS);
+                if (tile == null)
+                    continue;
+                for (int v : tile)
+                    out.writeInt(v);
+                out.flush();
+                byte[] packed = new byte[reply(in)];
+                in.readFully(packed);
+                IterationBuffer part = IterationBuffer.unpack(packed);
+                if (part.getWidth() != tile[2] - tile[0] || part.getHeight() != tile[3] - tile[1])
+                    throw new IOException("tuile de taille invalide");
+                result.paste(part, tile[0], tile[1]);
+                tile = null;
+                done++;
+                remaining.countDown();
+            }
+            out.writeInt(TileWorker.END);
+            out.flush();
+        } catch (EOFException e) {
+            System.out.println("Worker " + address + " perdu : connexion fermée"
+                    + ((tile != null) ? ", tuile réattribuée" : ""));
+        } catch (IOException e) {
+            System.out.println("Worker " + address + " perdu : " + e.getMessage()
+                    + ((tile != null) ? ", tuile réattribuée" : ""));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (tile != null)
+                tiles.addFirst(tile);
+        }
+        System.out.println("Worker " + address + " : " + done + " tuiles");
+    }
+
+    /**
+     * Lit la réponse d'un worker, en passant les TileWorker.KEEP_ALIVE envoyés pendant son calcul
+     *
+     * @param in le flux du worker
+     * @return le premier entier qui n'est pas un KEEP_ALIVE
+     * @throws IOException si la connexion est perdue ou si le worker se tait plus de SILENCE_TIMEOUT ms
+     */
+    private static int reply(DataInputStream in) throws IOException {
+        int v = in.readInt();
+        while (v == TileWorker.KEEP_ALIVE)
+            v = in.readInt();
+        return v;
+    }
+
+}
@@ -0,0 +1,172 @@
+package view;
+
+import model.Grid;
+import model.IterationBuffer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * TileWorker calcule des tuiles pour un TileCoordinator, éventuellement sur une autre machine.
+ * Chaque connexion décrit une image avec les arguments de la ligne de commandes,
+ * puis demande des tuiles une à une ; le worker renvoie leurs nombres d'itérations
+ * compressés (IterationBuffer.pack). Les tuiles sont calculées sur le pool partagé de Grid.
+ * Tant qu'une réponse est en calcul, le worker envoie KEEP_ALIVE toutes les KEEP_ALIVE_PERIOD ms :
+ * le coordinateur distingue ainsi une tuile longue d'un worker perdu.
+ *
+ * Protocole, en entiers big-endian :
+ * coordinateur : MAGIC, nombre d'arguments, arguments (UTF)  -> worker : [-2...] 1 si l'image est valide, 0 sinon
+ * coordinateur : x0 y0 x1 y1                                  -> worker : [-2...] taille, octets compressés
+ * coordinateur : -1                                           -> fin de la connexion
+ *
+ * @author marais bello
+ */
+public final class TileWorker {
+
+    static final int MAGIC = 0x4A54494C; // "JTIL"
+    static final int END = -1; // Fin des tuiles
+    static final int KEEP_ALIVE = -2; // Réponse encore en calcul
+    static final int KEEP_ALIVE_PERIOD = 5_000; // Délai entre deux KEEP_ALIVE en ms
+
+    // Calculs des réponses, le thread de la connexion envoie les KEEP_ALIVE en attendant
+    private static final ExecutorService ANSWERS = Executors.newCachedThreadPool((r) -> {
+        Thread t = new Thread(r, "tile-worker-render");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final int port;
+
+    /**
+     * Constructeur
+     *
+     * @param port le port d'écoute, 0 pour un port libre
+     */
+    public TileWorker(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Lance un worker depuis les arguments de la ligne de commandes
+     *
+     * @param args worker port
+     */
+    public static void run(String[] args) {
+        try {
+            new TileWorker(Integer.parseInt(args[1])).serve();
+        } catch (NumberFormatException e) {
+            System.out.println("Erreur args : port invalide");
+        } catch (IOException e) {
+            System.out.println("Erreur du worker : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Attend les coordinateurs, un thread par connexion
+     *
+     * @throws IOException si le port ne peut pas être ouvert
+     */
+    public void serve() throws IOException {
+        try (ServerSocket server = new ServerSocket(port)) {
+            System.out.println("Worker à l'écoute sur le port " + server.getLocalPort());
+            while (true) {
+                Socket socket = server.accept();
+                Thread t = new Thread(() -> handle(socket), "tile-worker");
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+    }
+
+    /**
+     * Traite les demandes d'un coordinateur jusqu'à la fin ou la coupure de la connexion
+     *
+     * @param socket la connexion
+     */
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            s.setTcpNoDelay(true);
+            if (in.readInt() != MAGIC)
+                return;
+            String[] args = new String[in.readInt()];
+            for (int k = 0; k < args.length; k++)
+                args[k] = in.readUTF();
+            // Avec "auto", la grille lance une sonde avant de répondre
+            Grid g = await(() -> ImageSaver.makeGrid(args), null, out);
+            out.writeInt((g != null) ? 1 : 0);
+            out.flush();
+            if (g == null)
+                return;
+            int tiles = 0;
+            long beg = System.nanoTime();
+            int first;
+            while ((first = in.readInt()) != END) {
+                int x0 = first, y0 = in.readInt(), x1 = in.readInt(), y1 = in.readInt();
+                IterationBuffer tile = await(() -> g.renderIterations(x0, y0, x1, y1), g, out);
+                if (tile == null)
+                    throw new IOException("Tuile invalide " + x0 + " " + y0 + " " + x1 + " " + y1);
+                byte[] packed = tile.pack();
+                out.writeInt(packed.length);
+                out.write(packed);
+                out.flush();
+                tiles++;
+            }
+            System.out.println(s.getRemoteSocketAddress() + " : " + tiles + " tuiles -> "
+                    + (System.nanoTime() - beg) / 1_000_000 + "ms");
+        } catch (EOFException e) {
+            System.out.println("Coordinateur déconnecté");
+        } catch (IOException e) {
+            System.out.println("Erreur de connexion : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Calcule une réponse en envoyant KEEP_ALIVE au coordinateur toutes les KEEP_ALIVE_PERIOD ms
+     *
+     * @param task le calcul
+     * @param grid la grille à arrêter si le coordinateur est perdu, peut être null
+     * @param out  le flux vers le coordinateur
+     * @param <T>  le type de la réponse
+     * @return le résultat du calcul
+     * @throws IOException si le coordinateur est perdu ou si le calcul échoue
+     */
+    private static <T> T await(Callable<T> task, Grid grid, DataOutputStream out) throws IOException {
+        Future<T> pending = ANSWERS.submit(task);
+        try {
+            while (true) {
+                try {
+                    return pending.get(KEEP_ALIVE_PERIOD, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    out.writeInt(KEEP_ALIVE);
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // Inutile de finir une tuile que personne ne recevra
+            if (grid != null)
+                grid.stop();
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IOException("Erreur de calcul : " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Calcul interrompu");
+        }
+    }
+
+}
@@ -0,0 +1,334 @@
+package view;
+
+import model.Grid;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+
+/**
+ * ZoomAnimation calcule une suite d'images numérotées allant d'une vue à une autre,
+ * le zoom progressant géométriquement d'une image à la suivante.
+ * Les images ne sont pas toutes calculées : une image clé est calculée avec
+ * QUALITY fois plus de pixels, puis les images suivantes, dont la zone est
+ * incluse dans l'image clé et dont les pixels ne sont pas plus fins, sont
+ * rééchantillonnées à partir d'elle. En dézoomant, l'image clé est calculée
+ * sur la plus large des images à venir qu'elle peut couvrir. L'encodage png
+ * se fait sur d'autres threads pendant le calcul des images suivantes.
+ *
+ * @author marais bello
+ */
+public final class ZoomAnimation {
+
+    private static final int QUALITY = 2; // Suréchantillonnage des images clés
+    private static final int QUEUE = 4; // Images en attente d'encodage, compressées au plus vite
+    private static final Frame END = new Frame(-1, null); // Marque la fin des images
+
+    private final Grid.GridBuilder builder;
+    private final int width;
+    private final int height;
+    private final int encoders; // Nombre de threads d'encodage
+    private int keyframes; // Nombre d'images clés calculées
+
+    /**
+     * Constructeur
+     *
+     * @param builder  le builder de la fonction, sa taille est remplacée
+     * @param width    la largeur des images
+     * @param height   la hauteur des images
+     * @param encoders le nombre de threads d'encodage png
+     */
+    public ZoomAnimation(Grid.GridBuilder builder, int width, int height, int encoders) {
+        this.builder = builder.cacheSize(0);
+        this.width = width;
+        this.height = height;
+        this.encoders = Math.max(1, encoders);
+    }
+
+    /**
+     * Lance une animation depuis les arguments de la ligne de commandes
+     *
+     * @param args animation type largeur hauteur images réel0 img0 zoom0(%) réel1 img1 zoom1(%) itérations nom [réel] [img]
+     */
+    public static void run(String[] args) {
+        try {
+            boolean julia = args[1].equals("julia");
+            if (!julia && !args[1].equals("mandelbrot") || args.length != (julia ? 15 : 13))
+                throw new IllegalArgumentException();
+            Grid.GridBuilder b = Grid.builder().iteration(Integer.parseInt(args[11]));
+            if (julia)
+                b.function(new double[]{0.0, 0.0, 1.0}, Double.parseDouble(args[13]), Double.parseDouble(args[14]));
+            else
+                b.mandelbrot();
+            ZoomAnimation anim = new ZoomAnimation(b, Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                    Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+            anim.render(new BigDecimal(args[5]), new BigDecimal(args[6]), Double.parseDouble(args[7]) / 100,
+                    new BigDecimal(args[8]), new BigDecimal(args[9]), Double.parseDouble(args[10]) / 100,
+                    Integer.parseInt(args[4]), new File("save"), args[12]);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Erreur args");
+        } catch (IOException e) {
+            System.out.println("Erreur d'écriture : " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Calcule et écrit les images de l'animation dans dir/name_00000.png, dir/name_00001.png...
+     * Le centre se déplace de façon à rester fixe à l'écran par rapport au zoom
+     *
+     * @param real0  la partie réelle du centre de départ
+     * @param img0   la partie imaginaire du centre de départ
+     * @param zoom0  le zoom de départ
+     * @param real1  la partie réelle du centre d'arrivée
+     * @param img1   la partie imaginaire du centre d'arrivée
+     * @param zoom1  le zoom d'arrivée
+     * @param frames le nombre d'images
+     * @param dir    le répertoire de sortie
+     * @param name   le préfixe des fichiers
+     * @throws IOException          si l'écriture d'une image échoue
+     * @throws InterruptedException si l'attente des encodeurs est interrompue
+     */
+    public void render(BigDecimal real0, BigDecimal img0, double zoom0, BigDecimal real1, BigDecimal img1,
+                       double zoom1, int frames, File dir, String name) throws IOException, InterruptedException {
+        if (frames < 1 || zoom0 <= 0 || zoom1 <= 0 || width < 1 || height < 1)
+            throw new IllegalArgumentException("Paramètres d'animation invalides");
+        new File(dir, name).getParentFile().mkdirs();
+        BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(QUEUE);
+        AtomicReference<IOException> error = new AtomicReference<>();
+        Thread[] threads = new Thread[encoders];
+        for (int k = 0; k < encoders; k++) {
+            threads[k] = new Thread(() -> encode(queue, dir, name, error), "png-encoder-" + k);
+            threads[k].start();
+        }
+        long beg = System.nanoTime();
+        keyframes = 0;
+        MathContext mc = new MathContext(20 + (int) Math.ceil(Math.log10(Math.max(zoom0, zoom1))));
+        Path path = new Path(real0, img0, zoom0, real1, img1, zoom1, frames, mc);
+        Key key = null;
+        try {
+            for (int f = 0; f < frames && error.get() == null; f++) {
+                View view = path.view(f);
+                if (key == null || !key.covers(view)) {
+                    // En dézoomant, les images suivantes sont plus larges : l'image clé est placée
+                    // sur la plus large des vues à venir dont les pixels restent assez fins,
+                    // sinon sur la vue courante si la plus large ne la contient pas
+                    int g = f;
+                    while (g + 1 < frames && path.view(g + 1).zoom < path.view(g).zoom
+                            && view.zoom <= QUALITY * path.view(g + 1).zoom)
+                        g++;
+                    key = new Key(path.view(g));
+                    for (; g > f && !key.covers(view); g--)
+                        key = new Key(path.view(g - 1));
+                }
+                int[] pixels = new int[width * height];
+                key.resample(view, pixels);
+                queue.put(new Frame(f, pixels));
+            }
+        } finally {
+            for (int k = 0; k < encoders; k++)
+                queue.put(END);
+            for (Thread thread : threads)
+                thread.join();
+        }
+        if (error.get() != null)
+            throw error.get();
+        double minutes = (System.nanoTime() - beg) / 60e9;
+        System.out.println("== " + frames + " images, " + keyframes + " images clés, "
+                + String.format("%.1f", frames / minutes) + " images/min ==");
+    }
+
+    /**
+     * Boucle d'un thread d'encodage : écrit les images de la file jusqu'à END
+     */
+    private void encode(BlockingQueue<Frame> queue, File dir, String name, AtomicReference<IOException> error) {
+        try {
+            Frame frame;
+            while ((frame = queue.take()) != END) {
+                if (error.get() != null)
+                    continue;
+                File out = new File(dir, String.format("%s_%05d.png", name, frame.index));
+                try (PngWriter png = new PngWriter(new BufferedOutputStream(new FileOutputStream(out)), width, height,
+                        Deflater.BEST_SPEED)) {
+                    png.writeRows(frame.pixels, height);
+                } catch (IOException e) {
+                    error.compareAndSet(null, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Image clé : rendu suréchantillonné d'une vue, calculé au premier rééchantillonnage
+     */
+    private final class Key {
+        private final BigDecimal real, img; // Centre
+        private final double zoom;
+        private final double pixel; // Taille d'un pixel de l'image clé
+        private final int w, h;
+        private final Grid grid;
+        private int[] pixels;
+
+        private Key(View view) {
+            this.real = view.real;
+            this.img = view.img;
+            this.zoom = view.zoom;
+            this.w = width * QUALITY;
+            this.h = height * QUALITY;
+            this.grid = builder.size(w, h).build();
+            grid.setOrigin(real, img);
+            grid.imageZoom(zoom * 100);
+            this.pixel = grid.getPixelSize();
+        }
+
+        /**
+         * Abscisse dans l'image clé d'un pixel de l'image demandée
+         */
+        private double column(BigDecimal real, double scale, double j) {
+            return real.subtract(this.real).doubleValue() / pixel + (j - width / 2.0) * scale + w / 2.0;
+        }
+
+        /**
+         * Ordonnée dans l'image clé d'un pixel de l'image demandée
+         */
+        private double row(BigDecimal img, double scale, double i) {
+            return h / 2.0 - img.subtract(this.img).doubleValue() / pixel + (i - height / 2.0) * scale;
+        }
+
+        /**
+         * Indique si une vue peut être rééchantillonnée depuis cette image clé :
+         * ses pixels ne sont pas plus fins et sa zone est incluse dans l'image clé
+         */
+        private boolean covers(View view) {
+            double scale = QUALITY * zoom / view.zoom; // Pixels de l'image clé par pixel de la vue
+            return scale >= 1 - 1e-9
+                    && column(view.real, scale, 0) >= 0 && column(view.real, scale, width - 1) <= w - 1
+                    && row(view.img, scale, 0) >= 0 && row(view.img, scale, height - 1) <= h - 1;
+        }
+
+        /**
+         * Rééchantillonne une vue par interpolation bilinéaire, poids sur 8 bits
+         *
+         * @param view  la vue demandée
+         * @param frame les pixels ARGB de sortie
+         */
+        private void resample(View view, int[] frame) {
+            if (pixels == null) {
+                pixels = grid.renderBuffer();
+                keyframes++;
+            }
+            double scale = QUALITY * zoom / view.zoom;
+            double x0 = column(view.real, scale, 0), y0 = row(view.img, scale, 0);
+            int[] ix = new int[width], fx = new int[width]; // Colonne et poids de chaque pixel, communs aux lignes
+            for (int j = 0; j < width; j++) {
+                double x = Math.min(w - 1, Math.max(0, x0 + j * scale));
+                ix[j] = Math.min(w - 2, (int) x);
+                fx[j] = (int) ((x - ix[j]) * 256);
+            }
+            for (int i = 0; i < height; i++) {
+                double y = Math.min(h - 1, Math.max(0, y0 + i * scale));
+                int iy = Math.min(h - 2, (int) y);
+                int fy = (int) ((y - iy) * 256);
+                for (int j = 0; j < width; j++) {
+                    int k = iy * w + ix[j];
+                    int top = lerp(pixels[k], pixels[k + 1], fx[j]);
+                    int bottom = lerp(pixels[k + w], pixels[k + w + 1], fx[j]);
+                    frame[i * width + j] = lerp(top, bottom, fy);
+                }
+            }
+        }
+    }
+
+    /**
+     * Chemin de l'animation : le zoom progresse géométriquement et le centre se déplace
+     * de façon à rester fixe à l'écran par rapport au zoom
+     */
+    private static final class Path {
+        private final BigDecimal real0, img0, real1, img1;
+        private final double zoom0, zoom1;
+        private final int frames;
+        private final MathContext mc;
+
+        private Path(BigDecimal real0, BigDecimal img0, double zoom0, BigDecimal real1, BigDecimal img1,
+                     double zoom1, int frames, MathContext mc) {
+            this.real0 = real0;
+            this.img0 = img0;
+            this.zoom0 = zoom0;
+            this.real1 = real1;
+            this.img1 = img1;
+            this.zoom1 = zoom1;
+            this.frames = frames;
+            this.mc = mc;
+        }
+
+        /**
+         * Vue d'une image du chemin
+         *
+         * @param f le numéro de l'image
+         * @return le centre et le zoom de l'image
+         */
+        private View view(int f) {
+            double t = (frames == 1) ? 0 : (double) f / (frames - 1);
+            double zoom = zoom0 * Math.pow(zoom1 / zoom0, t);
+            // Part du chemin restant à l'écran : 1 au départ, 0 à l'arrivée
+            double s = (zoom0 == zoom1) ? 1 - t : (zoom0 / zoom - zoom0 / zoom1) / (1 - zoom0 / zoom1);
+            BigDecimal ratio = new BigDecimal(s);
+            return new View(real1.add(real0.subtract(real1).multiply(ratio, mc), mc),
+                    img1.add(img0.subtract(img1).multiply(ratio, mc), mc), zoom);
+        }
+    }
+
+    /**
+     * Centre et zoom d'une image
+     */
+    private static final class View {
+        private final BigDecimal real, img;
+        private final double zoom;
+
+        private View(BigDecimal real, BigDecimal img, double zoom) {
+            this.real = real;
+            this.img = img;
+            this.zoom = zoom;
+        }
+    }
+
+    /**
+     * Image numérotée en attente d'encodage
+     */
+    private static final class Frame {
+        private final int index;
+        private final int[] pixels;
+
+        private Frame(int index, int[] pixels) {
+            this.index = index;
+            this.pixels = pixels;
+        }
+    }
+
+    /**
+     * Interpolation linéaire de deux couleurs ARGB opaques,
+     * les canaux rouge et bleu sont calculés ensemble
+     *
+     * @param a      la première couleur
+     * @param b      la seconde couleur
+     * @param weight le poids de b, de 0 à 256
+     * @return la couleur interpolée
+     */
+    private static int lerp(int a, int b, int weight) {
+        int inv = 256 - weight;
+        int rb = (((a & 0xFF00FF) * inv + (b & 0xFF00FF) * weight) >>> 8) & 0xFF00FF;
+        int g = (((a & 0x00FF00) * inv + (b & 0x00FF00) * weight) >>> 8) & 0x00FF00;
+        return 0xFF000000 | rb | g;
+    }
+
+}
@@ -18,6 +18,7 @@ import java.util.Scanner;
 public class TerminalMain {
 
     static Scanner sc;
+    private static boolean stats; // Affiche les statistiques détaillées du rendu
 
     /**
      * Pose la question tant que la réponse n'est pas un double
@@ -42,6 +43,16 @@ public class TerminalMain {
      * Traite le menu principal
      */
     public static void menu() {
+        menu(false);
+    }
+
+    /**
+     * Traite le menu principal
+     *
+     * @param stats true pour afficher les statistiques détaillées du rendu
+     */
+    public static void menu(boolean stats) {
+        TerminalMain.stats = stats;
         System.out.println("Bonjour.");
         String q = "Voulez vous télécharger un ensemble de Julia ou de Mandelbrot ?\n" +
                 "Entrez 1 pour Julia, 2 pour Mandelbrot";
@@ -62,7 +73,7 @@ public class TerminalMain {
                 "1 oui, 0 non";
         boolean inf = ((int) askDouble(q) > 0);
         int iter = 0;
-        if (!inf) iter = (int) askDouble("Veuillez entrer le nombre d'itérations svp.");
+        if (!inf) iter = (int) askDouble("Veuillez entrer le nombre d'itérations svp (0 pour un choix automatique).");
         double reel = askDouble("Veuillez entrer la partie réel svp.");
         double im = askDouble("Veuillez entrer la partie immaginaire svp");
         List<Double> polys = new LinkedList<>();
@@ -84,8 +95,16 @@ public class TerminalMain {
         grid = gb
                 .size(larg, haut)
                 .function(polys2, reel, im)
+                .autoIteration(!inf && iter <= 0)
+                .instrument(stats)
                 .build(); // Build l'objet
+        System.out.println("Calcul en cours, veuillez patienter.");
         Image image = grid.renderSceneMultiThreads();
+        if (inf)
+            System.out.println("Nombre d'itérations atteint : " + grid.getDepth());
+        else if (iter <= 0)
+            System.out.println("Nombre d'itérations choisi : " + grid.getMaxIteration());
+        printStatistics(grid);
         Scanner sc = new Scanner(System.in);
         System.out.println("Veuillez enter un nom de fichier svp.");
         String name = sc.next();
@@ -100,14 +119,19 @@ public class TerminalMain {
     private static void mandelbrot() {
         int haut = (int) askDouble("Veuillez entrer la hauteur en pixels svp.");
         int larg = (int) askDouble("Veuillez entrer la largeur en pixels svp.");
-        int iter = (int) askDouble("Veuillez entrer le nombre d'itérations svp.");
+        int iter = (int) askDouble("Veuillez entrer le nombre d'itérations svp (0 pour un choix automatique).");
         Grid grid = Grid.builder()
                 .iteration(iter)
+                .autoIteration(iter <= 0)
                 .size(larg, haut)
                 .mandelbrot()
+                .instrument(stats)
                 .build();
         System.out.println("Calcul en cours, veuillez patienter.");
         Image im = grid.renderSceneMultiThreads();
+        if (iter <= 0)
+            System.out.println("Nombre d'itérations choisi : " + grid.getMaxIteration());
+        printStatistics(grid);
         Scanner sc = new Scanner(System.in);
         System.out.println("Veuillez enter un nom de fichier svp.");
         String name = sc.next();
@@ -116,6 +140,16 @@ public class TerminalMain {
         end();
     }
 
+    /**
+     * Affiche les statistiques du rendu si elles sont demandées
+     *
+     * @param grid la grille calculée
+     */
+    private static void printStatistics(Grid grid) {
+        if (stats && grid.getStatistics() != null)
+            System.out.println("Statistiques : " + grid.getStatistics());
+    }
+
     /**
      * Traite la fin du programme
      */
@@ -1,5 +1,6 @@
 package view.graphic;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -13,6 +14,7 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import model.Grid;
+import model.RenderHandle;
 
 import java.io.InputStream;
 import java.util.List;
@@ -94,18 +96,47 @@ public abstract class FunctionBox extends HBox {
      * @param event evènement déclencher par le clavier
      */
     private void handleKey(KeyEvent event) {
-        if (currentGrid == null || !currentGrid.isRunning()) {
-            if (event.getCode() == KeyCode.PLUS || event.getCode() == KeyCode.EQUALS)
-                currentGrid.zoomGrid(40);
-            else if (event.getCode() == KeyCode.MINUS) currentGrid.zoomGrid(-40);
-            else if (event.getCode() == KeyCode.RIGHT) currentGrid.moveOrigin(0.2, 0);
-            else if (event.getCode() == KeyCode.LEFT) currentGrid.moveOrigin(-0.2, 0);
-            else if (event.getCode() == KeyCode.UP) currentGrid.moveOrigin(0, 0.2);
-            else if (event.getCode() == KeyCode.DOWN) currentGrid.moveOrigin(0, -0.2);
-            if (List.of(KeyCode.PLUS, KeyCode.EQUALS, KeyCode.MINUS, KeyCode.RIGHT, KeyCode.LEFT, KeyCode.UP, KeyCode.DOWN)
-                    .contains(event.getCode()))
-                root.setCenter(new ImageView(currentGrid.renderSceneMultiThreads()));
+        // P change de palette sans refaire le calcul
+        if (currentGrid != null && event.getCode() == KeyCode.P) {
+            Image img = currentGrid.recolor(currentGrid.getPalette().next());
+            if (img != null) {
+                currentImage = new ImageView(img);
+                root.setCenter(currentImage);
+            }
+            return;
         }
+        if (currentGrid == null || !List.of(KeyCode.PLUS, KeyCode.EQUALS, KeyCode.MINUS,
+                KeyCode.RIGHT, KeyCode.LEFT, KeyCode.UP, KeyCode.DOWN).contains(event.getCode()))
+            return;
+        // annule le rendu en cours avant de modifier le repère
+        Grid g = currentGrid;
+        g.stop();
+        if (event.getCode() == KeyCode.PLUS || event.getCode() == KeyCode.EQUALS)
+            g.zoomGrid(40);
+        else if (event.getCode() == KeyCode.MINUS) g.zoomGrid(-40);
+        else if (event.getCode() == KeyCode.RIGHT) g.moveOrigin(0.2, 0);
+        else if (event.getCode() == KeyCode.LEFT) g.moveOrigin(-0.2, 0);
+        else if (event.getCode() == KeyCode.UP) g.moveOrigin(0, 0.2);
+        else if (event.getCode() == KeyCode.DOWN) g.moveOrigin(0, -0.2);
+        // le nouveau rendu remplace le précédent, abandonné en quelques millisecondes
+        g.submit(this::publish, 0).onComplete((h) -> {
+            if (h.getStatus() == RenderHandle.Status.DONE)
+                publish(h.getImage());
+        });
+    }
+
+    /**
+     * Affiche une image calculée, appelable depuis un thread de calcul
+     *
+     * @param img l'image à afficher
+     */
+    protected void publish(Image img) {
+        Platform.runLater(() -> {
+            if (!isStopped) {
+                currentImage = new ImageView(img);
+                root.setCenter(currentImage);
+            }
+        });
     }
 
     /**
@@ -123,12 +123,13 @@ public final class JuliaBox extends FunctionBox {
                     .function(coeffs, t[1], t[2])
                     .build(); // Build l'objet
             currentGrid = grid;
-            Image res = grid.renderSceneMultiThreads(); // calcul
-            // gère l'arrêt du calcul
-            if (!isStopped) {
+            Image res = grid.renderProgressive(this::publish); // calcul
+            // gère l'arrêt du calcul, res est null si un rendu plus récent l'a remplacé
+            if (isStopped) isStopped = false;
+            else if (res != null) {
                 image = new ImageView(res);
                 currentImage = image;
-            } else isStopped = false;
+            }
             // transforme le bouton stop en play
             Platform.runLater(() -> {
                 sonVBox.getChildren().removeAll(stop, delete);
@@ -15,10 +15,17 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
+import view.BatchRenderer;
+import view.CheckpointRenderer;
 import view.ImageSaver;
+import view.PyramidExporter;
+import view.TileCoordinator;
+import view.TileWorker;
+import view.ZoomAnimation;
 import view.command.TerminalMain;
 
 import java.io.InputStream;
+import java.util.Arrays;
 
 
 /**
@@ -37,21 +44,68 @@ public final class MainStage extends Application {
     public final static double leftWidth = windowWidth * 0.3d;
 
     public static void main(String[] args) {
+        // Options en fin de ligne : --stats affiche les statistiques détaillées du rendu,
+        // --aa n anticrénèle les bords de l'image sur n x n sous-pixels
+        boolean stats = false;
+        int samples = 1;
+        while (true) {
+            if (args.length != 0 && args[args.length - 1].equals("--stats")) {
+                stats = true;
+                args = Arrays.copyOf(args, args.length - 1);
+            } else if (args.length >= 2 && args[args.length - 2].equals("--aa")) {
+                try {
+                    samples = Integer.parseInt(args[args.length - 1]);
+                } catch (NumberFormatException e) {
+                    samples = 0;
+                }
+                args = Arrays.copyOf(args, args.length - 2);
+            } else {
+                break;
+            }
+        }
         if (args.length != 0 && args[0].equals("interactif"))
-            TerminalMain.menu();
+            TerminalMain.menu(stats);
         else if (args.length != 0 && args[0].equals("graphique"))
             launch(args);
+        else if (args.length >= 2 && args[0].equals("batch"))
+            BatchRenderer.run(args);
+        else if (args.length >= 2 && args[0].equals("animation"))
+            ZoomAnimation.run(args);
+        else if (args.length == 2 && args[0].equals("worker"))
+            TileWorker.run(args);
+        else if (args.length >= 10 && args[0].equals("coordinator"))
+            TileCoordinator.run(args);
+        else if (args.length >= 9 && args[0].equals("checkpoint"))
+            CheckpointRenderer.run(args);
+        else if (args.length >= 9 && args[0].equals("pyramid"))
+            PyramidExporter.run(args);
         else if (args.length == 10 && args[0].equals("julia")
                 || args.length == 8 && args[0].equals("mandelbrot"))
-            ImageSaver.generateImageFromArgs(args);
+            ImageSaver.generateImageFromArgs(args, stats, samples);
         else
             System.out.println("=== MANDELBROT JULIA ===\n\n" +
                     "Cmdline \n" +
-                    "|> ./fractal <julia|mandelbrot> width height origin_x origin_y zoom(%) iteration name [reel] [img]\n\n" +
+                    "|> ./fractal <julia|mandelbrot> width height origin_x origin_y zoom(%) <iteration|auto> name " +
+                    "[reel] [img] [--aa n] [--stats]\n\n" +
                     "Interatif\n" +
-                    "|> ./fractal interactif\n\n" +
+                    "|> ./fractal interactif [--stats]\n\n" +
                     "Graphique\n" +
                     "|> ./fractal graphique\n\n" +
+                    "Batch\n" +
+                    "|> ./fractal batch jobs.txt [images_en_cours]\n\n" +
+                    "Animation\n" +
+                    "|> ./fractal animation <julia|mandelbrot> width height frames reel0 img0 zoom0(%) " +
+                    "reel1 img1 zoom1(%) iteration name [reel] [img]\n\n" +
+                    "Rendu distribué\n" +
+                    "|> ./fractal worker port\n" +
+                    "|> ./fractal coordinator host:port[,host:port...] <julia|mandelbrot> width height " +
+                    "origin_x origin_y zoom(%) iteration name [reel] [img]\n\n" +
+                    "Rendu avec points de reprise\n" +
+                    "|> ./fractal checkpoint <julia|mandelbrot> width height origin_x origin_y zoom(%) " +
+                    "iteration name [reel] [img]\n\n" +
+                    "Pyramide de tuiles (Deep Zoom)\n" +
+                    "|> ./fractal pyramid <julia|mandelbrot> width height origin_x origin_y zoom(%) " +
+                    "iteration name [reel] [img]\n\n" +
                     "========================");
         System.exit(0);
     }
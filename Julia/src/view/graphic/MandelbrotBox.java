@@ -65,11 +65,13 @@ public final class MandelbrotBox extends FunctionBox {
                     .mandelbrot()
                     .build();
             currentGrid = grid;
-            Image res = grid.renderSceneMultiThreads();
-            if (!isStopped) {
+            Image res = grid.renderProgressive(this::publish);
+            // res est null si un rendu plus récent l'a remplacé
+            if (isStopped) isStopped = false;
+            else if (res != null) {
                 image = new ImageView(res);
                 currentImage = image;
-            } else isStopped = false;
+            }
             // actualise l'IG
             Platform.runLater(() -> {
                 sonVBox.getChildren().removeAll(stop, delete);